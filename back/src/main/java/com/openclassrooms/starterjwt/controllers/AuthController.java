@@ -1,11 +1,15 @@
 package com.openclassrooms.starterjwt.controllers;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -14,14 +18,21 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.openclassrooms.starterjwt.exception.ServiceUnavailableException;
+import com.openclassrooms.starterjwt.exception.TooManyRequestsException;
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.payload.request.LoginRequest;
 import com.openclassrooms.starterjwt.payload.request.SignupRequest;
+import com.openclassrooms.starterjwt.payload.request.TokenRefreshRequest;
 import com.openclassrooms.starterjwt.payload.response.JwtResponse;
 import com.openclassrooms.starterjwt.payload.response.MessageResponse;
 import com.openclassrooms.starterjwt.repository.UserRepository;
 import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
+import com.openclassrooms.starterjwt.security.services.LoginRateLimiter;
+import com.openclassrooms.starterjwt.security.services.PasswordRehashService;
+import com.openclassrooms.starterjwt.security.services.RefreshTokenService;
 import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import com.openclassrooms.starterjwt.services.UserCache;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
@@ -31,39 +42,90 @@ public class AuthController {
     private final JwtUtils jwtUtils;
     private final PasswordEncoder passwordEncoder;
     private final UserRepository userRepository;
+    private final UserCache userCache;
+    private final PasswordRehashService passwordRehashService;
+    private final LoginRateLimiter loginRateLimiter;
+    private final RefreshTokenService refreshTokenService;
 
     AuthController(AuthenticationManager authenticationManager,
             PasswordEncoder passwordEncoder,
             JwtUtils jwtUtils,
-            UserRepository userRepository) {
+            UserRepository userRepository,
+            UserCache userCache,
+            PasswordRehashService passwordRehashService,
+            LoginRateLimiter loginRateLimiter,
+            RefreshTokenService refreshTokenService) {
         this.authenticationManager = authenticationManager;
         this.jwtUtils = jwtUtils;
         this.passwordEncoder = passwordEncoder;
         this.userRepository = userRepository;
+        this.userCache = userCache;
+        this.passwordRehashService = passwordRehashService;
+        this.loginRateLimiter = loginRateLimiter;
+        this.refreshTokenService = refreshTokenService;
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
+    public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest,
+            HttpServletRequest request) {
+        try {
+            loginRateLimiter.acquire(loginRequest.getEmail(), request.getRemoteAddr());
+        } catch (TooManyRequestsException e) {
+            return retryLater(HttpStatus.TOO_MANY_REQUESTS, e.getRetryAfterSeconds(),
+                    "Error: Too many login attempts, please retry later");
+        }
 
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(loginRequest.getEmail(), loginRequest.getPassword()));
+        Authentication authentication;
+        try {
+            authentication = authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(loginRequest.getEmail(), loginRequest.getPassword()));
+        } catch (ServiceUnavailableException e) {
+            return serviceUnavailable(e);
+        } catch (AuthenticationException e) {
+            loginRateLimiter.recordFailure(loginRequest.getEmail(), request.getRemoteAddr());
+            throw e;
+        }
 
         SecurityContextHolder.getContext().setAuthentication(authentication);
         String jwt = jwtUtils.generateJwtToken(authentication);
         UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
 
-        boolean isAdmin = false;
-        User user = this.userRepository.findByEmail(userDetails.getUsername()).orElse(null);
-        if (user != null) {
-            isAdmin = user.isAdmin();
+        if (passwordRehashService.needsRehash(userDetails.getPassword())) {
+            passwordRehashService.rehash(userDetails.getId(), userDetails.getPassword(), loginRequest.getPassword());
         }
 
-        return ResponseEntity.ok(new JwtResponse(jwt,
+        JwtResponse response = new JwtResponse(jwt,
                 userDetails.getId(),
                 userDetails.getUsername(),
                 userDetails.getFirstName(),
                 userDetails.getLastName(),
-                isAdmin));
+                userDetails.getAdmin());
+        response.setRefreshToken(refreshTokenService.create(userDetails.getId()));
+
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refreshToken(@Valid @RequestBody TokenRefreshRequest refreshRequest) {
+        User user = refreshTokenService.consume(refreshRequest.getRefreshToken())
+                .flatMap(userCache::findById)
+                .orElse(null);
+        if (user == null) {
+            return ResponseEntity
+                    .status(HttpStatus.UNAUTHORIZED)
+                    .body(new MessageResponse("Error: Refresh token is invalid or expired"));
+        }
+
+        UserDetailsImpl userDetails = UserDetailsImpl.build(user);
+        JwtResponse response = new JwtResponse(jwtUtils.generateJwtToken(userDetails),
+                userDetails.getId(),
+                userDetails.getUsername(),
+                userDetails.getFirstName(),
+                userDetails.getLastName(),
+                userDetails.getAdmin());
+        response.setRefreshToken(refreshTokenService.create(user.getId()));
+
+        return ResponseEntity.ok(response);
     }
 
     @PostMapping("/register")
@@ -74,15 +136,35 @@ public class AuthController {
                     .body(new MessageResponse("Error: Email is already taken!"));
         }
 
+        String encodedPassword;
+        try {
+            encodedPassword = passwordEncoder.encode(signUpRequest.getPassword());
+        } catch (ServiceUnavailableException e) {
+            return serviceUnavailable(e);
+        }
+
         // Create new user's account
         User user = new User(signUpRequest.getEmail(),
                 signUpRequest.getLastName(),
                 signUpRequest.getFirstName(),
-                passwordEncoder.encode(signUpRequest.getPassword()),
+                encodedPassword,
                 false);
 
         userRepository.save(user);
+        userCache.invalidateEmail(user.getEmail());
 
         return ResponseEntity.ok(new MessageResponse("User registered successfully!"));
     }
+
+    private ResponseEntity<?> serviceUnavailable(ServiceUnavailableException e) {
+        return retryLater(HttpStatus.SERVICE_UNAVAILABLE, e.getRetryAfterSeconds(),
+                "Error: Too many authentication requests, please retry later");
+    }
+
+    private ResponseEntity<?> retryLater(HttpStatus status, long retryAfterSeconds, String message) {
+        return ResponseEntity
+                .status(status)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(new MessageResponse(message));
+    }
 }
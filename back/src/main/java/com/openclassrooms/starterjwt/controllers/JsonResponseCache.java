@@ -0,0 +1,188 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the encoded JSON body, and its gzip version, of the latest version of a resource, so that
+ * an unchanged resource is written to the response as is, with neither mapping nor serialization.
+ * Entries are keyed by the tags of {@link com.openclassrooms.starterjwt.services.ResourceVersions}:
+ * the data changing moves the tag, and the next request encodes the new body in place of the old one.
+ * Conditional requests are answered here too, since the tag sent depends on the encoding.
+ */
+@Component
+public class JsonResponseCache {
+    private static final String CACHE_NAME = "responses";
+
+    private final ObjectMapper objectMapper;
+
+    private final int gzipMinBytes;
+
+    private final Map<String, Body> bodies = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    JsonResponseCache(ObjectMapper objectMapper,
+                      MeterRegistry meterRegistry,
+                      @Value("${oc.app.responseGzipMinBytes:1024}") int gzipMinBytes) {
+        this.objectMapper = objectMapper;
+        this.gzipMinBytes = gzipMinBytes;
+
+        FunctionCounter.builder("cache.gets", hits, LongAdder::sum)
+                .tag("cache", CACHE_NAME).tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::sum)
+                .tag("cache", CACHE_NAME).tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Answers {@code 304} when {@code If-None-Match} holds the tag of either encoding of
+     * {@code resource} at {@code tag}, else {@code 200} with its body, encoding the value of
+     * {@code loader} when that version is not cached yet. The tag must be read before the data.
+     * <p>
+     * The gzip body is a different representation, so it carries its own strong tag (see
+     * {@link #gzipTag(String)}); both tags name the same version and validate each other.
+     */
+    public ResponseEntity<byte[]> respond(String resource, String tag, Supplier<?> loader, WebRequest request) {
+        String gzipTag = gzipTag(tag);
+        String matched = matchingTag(request.getHeader(HttpHeaders.IF_NONE_MATCH), tag, gzipTag);
+        if (matched != null) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(matched)
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+
+        Body body = this.bodies.get(resource);
+        if (body != null && body.tag.equals(tag)) {
+            this.hits.increment();
+        } else {
+            this.misses.increment();
+            body = encode(tag, loader.get());
+            this.bodies.put(resource, body);
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (body.gzip != null && acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+            return response.eTag(gzipTag)
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .contentLength(body.gzip.length)
+                    .body(body.gzip);
+        }
+        return response.eTag(tag).contentLength(body.json.length).body(body.json);
+    }
+
+    public long getHitCount() {
+        return this.hits.sum();
+    }
+
+    public long getMissCount() {
+        return this.misses.sum();
+    }
+
+    private Body encode(String tag, Object value) {
+        try {
+            byte[] json = this.objectMapper.writeValueAsBytes(value);
+            return new Body(tag, json, json.length >= this.gzipMinBytes ? gzip(json) : null);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot encode the response body", e);
+        }
+    }
+
+    static String gzipTag(String tag) {
+        return tag.substring(0, tag.length() - 1) + "-gz\"";
+    }
+
+    /**
+     * Returns the tag of {@code If-None-Match} matching one of {@code tags}, compared weakly as the
+     * header requires, or {@code null}.
+     */
+    static String matchingTag(String ifNoneMatch, String... tags) {
+        if (ifNoneMatch == null) {
+            return null;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            for (String tag : tags) {
+                if (value.equals("*") || value.equals(tag)) {
+                    return tag;
+                }
+            }
+        }
+        return null;
+    }
+
+    static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4 + 32);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (!parts[0].trim().equalsIgnoreCase("gzip")) {
+                continue;
+            }
+            // "gzip;q=0" explicitly refuses it
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim().replace(" ", "");
+                if (parameter.matches("q=0(\\.0*)?")) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static final class Body {
+        private final String tag;
+
+        private final byte[] json;
+
+        private final byte[] gzip;
+
+        private Body(String tag, byte[] json, byte[] gzip) {
+            this.tag = tag;
+            this.json = json;
+            this.gzip = gzip;
+        }
+    }
+}
@@ -2,15 +2,33 @@ package com.openclassrooms.starterjwt.controllers;
 
 
 import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.exception.ServiceUnavailableException;
 import com.openclassrooms.starterjwt.mapper.SessionMapper;
 import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.payload.response.LotteryEntryResponse;
+import com.openclassrooms.starterjwt.payload.response.QueueTicketResponse;
+import com.openclassrooms.starterjwt.payload.response.SessionPageResponse;
+import com.openclassrooms.starterjwt.services.BookingLottery;
+import com.openclassrooms.starterjwt.services.BookingStatus;
+import com.openclassrooms.starterjwt.services.QueueTicket;
+import com.openclassrooms.starterjwt.services.ResourceVersions;
+import com.openclassrooms.starterjwt.services.SessionPage;
 import com.openclassrooms.starterjwt.services.SessionService;
+import com.openclassrooms.starterjwt.services.SessionViewCache;
+import com.openclassrooms.starterjwt.services.WaitingRoom;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.validation.Valid;
-import java.util.List;
+import java.util.Date;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
@@ -19,34 +37,90 @@ import java.util.List;
 public class SessionController {
     private final SessionMapper sessionMapper;
     private final SessionService sessionService;
+    private final WaitingRoom waitingRoom;
+    private final BookingLottery bookingLottery;
+    private final ResourceVersions resourceVersions;
+    private final SessionViewCache sessionViewCache;
+    private final JsonResponseCache jsonResponseCache;
+    private final SessionEventStream sessionEventStream;
+    private final int maxPageSize;
 
 
     public SessionController(SessionService sessionService,
-                             SessionMapper sessionMapper) {
+                             SessionMapper sessionMapper,
+                             WaitingRoom waitingRoom,
+                             BookingLottery bookingLottery,
+                             ResourceVersions resourceVersions,
+                             SessionViewCache sessionViewCache,
+                             JsonResponseCache jsonResponseCache,
+                             SessionEventStream sessionEventStream,
+                             @Value("${oc.app.sessionPageMaxSize:100}") int maxPageSize) {
         this.sessionMapper = sessionMapper;
         this.sessionService = sessionService;
+        this.waitingRoom = waitingRoom;
+        this.bookingLottery = bookingLottery;
+        this.resourceVersions = resourceVersions;
+        this.sessionViewCache = sessionViewCache;
+        this.jsonResponseCache = jsonResponseCache;
+        this.sessionEventStream = sessionEventStream;
+        this.maxPageSize = maxPageSize;
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> findById(@PathVariable("id") String id) {
+    public ResponseEntity<?> findById(@PathVariable("id") String id, WebRequest request) {
         try {
-            Session session = this.sessionService.getById(Long.valueOf(id));
+            Long sessionId = Long.valueOf(id);
+
+            // The version is read before the session, see ResourceVersions
+            if (request.checkNotModified(this.resourceVersions.sessionTag(sessionId))) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+            }
+
+            SessionDto session = this.sessionViewCache.findById(sessionId);
 
             if (session == null) {
                 return ResponseEntity.notFound().build();
             }
 
-            return ResponseEntity.ok().body(this.sessionMapper.toDto(session));
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache().cachePrivate()).body(session);
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
     @GetMapping()
-    public ResponseEntity<?> findAll() {
-        List<Session> sessions = this.sessionService.findAll();
+    public ResponseEntity<?> findAll(WebRequest request) {
+        String tag = this.resourceVersions.sessionsTag();
+        return this.jsonResponseCache.respond("sessions", tag, this.sessionViewCache::findAll, request);
+    }
+
+    /**
+     * Streams the session changes, see {@link SessionEventStream}, so that clients read the
+     * sessions again only when they changed.
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> stream() {
+        try {
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noStore())
+                    .body(this.sessionEventStream.open());
+        } catch (ServiceUnavailableException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .build();
+        }
+    }
+
+    @GetMapping("/page")
+    public ResponseEntity<?> findPage(@RequestParam(value = "cursor", required = false) String cursor,
+                                      @RequestParam(value = "size", defaultValue = "20") int size) {
+        if (size < 1) {
+            return ResponseEntity.badRequest().build();
+        }
 
-        return ResponseEntity.ok().body(this.sessionMapper.toDto(sessions));
+        SessionPage page = this.sessionService.findPage(cursor, Math.min(size, this.maxPageSize));
+
+        return ResponseEntity.ok().body(new SessionPageResponse(this.sessionMapper.toDto(page.getSessions()), page.getNextCursor()));
     }
 
     @PostMapping()
@@ -89,14 +163,58 @@ public class SessionController {
     @PostMapping("{id}/participate/{userId}")
     public ResponseEntity<?> participate(@PathVariable("id") String id, @PathVariable("userId") String userId) {
         try {
-            this.sessionService.participate(Long.parseLong(id), Long.parseLong(userId));
+            Long sessionId = Long.parseLong(id);
+            Long participantId = Long.parseLong(userId);
+
+            // Lottery sessions collect requests until the draw, whatever their order
+            Date drawAt = this.bookingLottery.enterIfOpen(sessionId, participantId);
+            if (drawAt != null) {
+                long untilDraw = Math.max(1, (drawAt.getTime() - System.currentTimeMillis()) / 1000);
+                return ResponseEntity.accepted()
+                        .header(HttpHeaders.RETRY_AFTER, String.valueOf(untilDraw))
+                        .body(new LotteryEntryResponse(sessionId, drawAt));
+            }
+
+            // While a booking opening is on, requests only get a ticket to poll
+            QueueTicket ticket = this.waitingRoom.enqueueIfActive(sessionId, participantId);
+            if (ticket != null) {
+                return ResponseEntity.accepted()
+                        .header(HttpHeaders.LOCATION, "/api/session/queue/" + ticket.getId())
+                        .header(HttpHeaders.RETRY_AFTER, String.valueOf(this.waitingRoom.retryAfterSeconds(ticket)))
+                        .body(toResponse(ticket));
+            }
 
+            BookingStatus status = this.sessionService.participate(sessionId, participantId);
+
+            // Accepted only: the seat is given later if one frees up
+            if (status == BookingStatus.WAITLISTED) {
+                return ResponseEntity.accepted().build();
+            }
             return ResponseEntity.ok().build();
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
+        } catch (ServiceUnavailableException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .build();
         }
     }
 
+    @GetMapping("/queue/{ticket}")
+    public ResponseEntity<?> findTicket(@PathVariable("ticket") String ticketId) {
+        QueueTicket ticket = this.waitingRoom.find(ticketId);
+        if (ticket == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        if (ticket.getState() == QueueTicket.State.QUEUED) {
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(this.waitingRoom.retryAfterSeconds(ticket)))
+                    .body(toResponse(ticket));
+        }
+        return ResponseEntity.ok().body(toResponse(ticket));
+    }
+
     @DeleteMapping("{id}/participate/{userId}")
     public ResponseEntity<?> noLongerParticipate(@PathVariable("id") String id, @PathVariable("userId") String userId) {
         try {
@@ -105,6 +223,18 @@ public class SessionController {
             return ResponseEntity.ok().build();
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
+        } catch (ServiceUnavailableException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .build();
         }
     }
+
+    private QueueTicketResponse toResponse(QueueTicket ticket) {
+        return new QueueTicketResponse(ticket.getId(),
+                ticket.getSessionId(),
+                ticket.getState().name(),
+                this.waitingRoom.position(ticket),
+                ticket.getStatus());
+    }
 }
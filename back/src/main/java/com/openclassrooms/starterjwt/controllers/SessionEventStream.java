@@ -0,0 +1,337 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.exception.ServiceUnavailableException;
+import com.openclassrooms.starterjwt.services.SessionEvent;
+import com.openclassrooms.starterjwt.services.SessionEvents;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pushes the {@link SessionEvents} to the clients of {@code GET /api/session/stream} as Server-Sent
+ * Events. Each event is encoded once on the thread that committed it, then a dispatcher thread
+ * queues it for every client and a small pool writes the queues out, one client at a time, so
+ * neither the number of clients nor a slow client delays the commit that published the event.
+ * <p>
+ * A client whose queue is full is disconnected: it reconnects after the {@code retry} delay and
+ * reads the sessions again with a conditional request instead of receiving a backlog. A client
+ * whose write has been blocked for {@code oc.app.sessionStreamWriteTimeoutMs} is disconnected
+ * too; the blocked thread is only released when the container gives up on the socket, so the
+ * pool gets another thread meanwhile and the other clients keep being written.
+ */
+@Component
+public class SessionEventStream implements DisposableBean {
+    private static final Frame HEARTBEAT = new Frame(null, null, null);
+
+    private static final long IDLE = 0;
+
+    private static final long STALLED = Long.MIN_VALUE;
+
+    private final ObjectMapper objectMapper;
+
+    private final int bufferSize;
+
+    private final int maxClients;
+
+    private final long timeoutMs;
+
+    private final long retryMs;
+
+    private final long writeTimeoutNanos;
+
+    private final Set<Client> clients = ConcurrentHashMap.newKeySet();
+
+    private final ThreadPoolExecutor executor;
+
+    private final ExecutorService dispatcher;
+
+    private final LongAdder published = new LongAdder();
+
+    private final LongAdder slowDisconnects = new LongAdder();
+
+    private final LongAdder stalledDisconnects = new LongAdder();
+
+    @Autowired
+    SessionEventStream(SessionEvents sessionEvents,
+                       ObjectMapper objectMapper,
+                       MeterRegistry meterRegistry,
+                       @Value("${oc.app.sessionStreamBufferSize:256}") int bufferSize,
+                       @Value("${oc.app.sessionStreamMaxClients:10000}") int maxClients,
+                       @Value("${oc.app.sessionStreamTimeoutMs:1800000}") long timeoutMs,
+                       @Value("${oc.app.sessionStreamRetryMs:3000}") long retryMs,
+                       @Value("${oc.app.sessionStreamWriteTimeoutMs:5000}") long writeTimeoutMs,
+                       @Value("${oc.app.sessionStreamThreads:8}") int threads) {
+        this(sessionEvents, objectMapper, meterRegistry, bufferSize, maxClients, timeoutMs, retryMs, writeTimeoutMs,
+                (ThreadPoolExecutor) Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("session-stream-")),
+                Executors.newSingleThreadExecutor(new CustomizableThreadFactory("session-stream-dispatch-")));
+    }
+
+    SessionEventStream(SessionEvents sessionEvents, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                       int bufferSize, int maxClients, long timeoutMs, long retryMs, long writeTimeoutMs,
+                       ThreadPoolExecutor executor, ExecutorService dispatcher) {
+        this.objectMapper = objectMapper;
+        this.bufferSize = bufferSize;
+        this.maxClients = maxClients;
+        this.timeoutMs = timeoutMs;
+        this.retryMs = retryMs;
+        this.writeTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(writeTimeoutMs);
+        this.executor = executor;
+        this.dispatcher = dispatcher;
+
+        Gauge.builder("session.stream.clients", clients, Set::size)
+                .register(meterRegistry);
+        FunctionCounter.builder("session.stream.events", published, LongAdder::sum)
+                .register(meterRegistry);
+        FunctionCounter.builder("session.stream.disconnects", slowDisconnects, LongAdder::sum)
+                .tag("reason", "slow")
+                .register(meterRegistry);
+        FunctionCounter.builder("session.stream.disconnects", stalledDisconnects, LongAdder::sum)
+                .tag("reason", "stalled")
+                .register(meterRegistry);
+
+        sessionEvents.subscribe(this::publish);
+    }
+
+    /**
+     * Opens a stream for a new client, or fails with a {@link ServiceUnavailableException} when
+     * there are already too many.
+     */
+    public SseEmitter open() {
+        if (this.clients.size() >= this.maxClients) {
+            throw new ServiceUnavailableException(Math.max(1, this.retryMs / 1000));
+        }
+
+        SseEmitter emitter = new SseEmitter(this.timeoutMs);
+        Client client = new Client(emitter, this.bufferSize);
+        emitter.onCompletion(() -> this.clients.remove(client));
+        emitter.onError(e -> this.clients.remove(client));
+        try {
+            // Buffered until the response starts, it also sends the headers right away
+            emitter.send(SseEmitter.event().reconnectTime(this.retryMs));
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+            return emitter;
+        }
+        this.clients.add(client);
+        return emitter;
+    }
+
+    /**
+     * Keeps idle connections open through proxies, and finds out the clients that went away.
+     */
+    @Scheduled(initialDelayString = "${oc.app.sessionStreamHeartbeatMs:15000}", fixedDelayString = "${oc.app.sessionStreamHeartbeatMs:15000}")
+    public void heartbeat() {
+        for (Client client : this.clients) {
+            offer(client, HEARTBEAT);
+        }
+    }
+
+    /**
+     * Disconnects the clients whose current write has been blocked for too long, and gives the
+     * pool a thread in place of each one still blocked.
+     */
+    @Scheduled(initialDelayString = "${oc.app.sessionStreamWriteCheckMs:1000}", fixedDelayString = "${oc.app.sessionStreamWriteCheckMs:1000}")
+    public void expireStalledWrites() {
+        long now = System.nanoTime();
+        for (Client client : this.clients) {
+            long since = client.writingSince.get();
+            // Fails when the write has just finished: the client is not stalled
+            if (since == IDLE || since == STALLED || now - since < this.writeTimeoutNanos
+                    || !client.writingSince.compareAndSet(since, STALLED)) {
+                continue;
+            }
+            this.clients.remove(client);
+            client.closed = true;
+            client.queue.clear();
+            this.stalledDisconnects.increment();
+            resizePool(1);
+        }
+    }
+
+    public int getClientCount() {
+        return this.clients.size();
+    }
+
+    public long getSlowDisconnectCount() {
+        return this.slowDisconnects.sum();
+    }
+
+    public long getStalledDisconnectCount() {
+        return this.stalledDisconnects.sum();
+    }
+
+    @Override
+    public void destroy() {
+        this.dispatcher.shutdownNow();
+        this.executor.shutdownNow();
+        this.clients.clear();
+    }
+
+    void publish(SessionEvent event) {
+        Frame frame;
+        try {
+            frame = new Frame(String.valueOf(event.getId()), event.getType().getName(),
+                    this.objectMapper.writeValueAsString(event));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot encode the session event", e);
+        }
+        this.published.increment();
+        try {
+            this.dispatcher.execute(() -> {
+                for (Client client : this.clients) {
+                    offer(client, frame);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+        }
+    }
+
+    private void offer(Client client, Frame frame) {
+        if (client.closed) {
+            return;
+        }
+        if (!client.queue.offer(frame)) {
+            this.slowDisconnects.increment();
+            close(client);
+            return;
+        }
+        schedule(client);
+    }
+
+    private void close(Client client) {
+        this.clients.remove(client);
+        client.closed = true;
+        schedule(client);
+    }
+
+    private void schedule(Client client) {
+        if (!client.draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            this.executor.execute(() -> drain(client));
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            client.draining.set(false);
+        }
+    }
+
+    // Only one thread drains a client at a time, so its events are written in order
+    private void drain(Client client) {
+        do {
+            Frame frame;
+            try {
+                while (!client.closed && (frame = client.queue.poll()) != null) {
+                    write(client, frame);
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Gone or already completed, the container reports the error to the emitter
+                this.clients.remove(client);
+                client.closed = true;
+                client.queue.clear();
+                return;
+            }
+            if (client.closed) {
+                client.queue.clear();
+                complete(client);
+                return;
+            }
+            client.draining.set(false);
+        } while ((client.closed || !client.queue.isEmpty()) && client.draining.compareAndSet(false, true));
+    }
+
+    private void write(Client client, Frame frame) throws IOException {
+        client.writingSince.set(System.nanoTime());
+        try {
+            client.emitter.send(frame.toEvent());
+        } finally {
+            if (client.writingSince.getAndSet(IDLE) == STALLED) {
+                // Given up by expireStalledWrites(), the extra thread is no longer needed
+                resizePool(-1);
+            }
+        }
+    }
+
+    private synchronized void resizePool(int delta) {
+        int size = this.executor.getCorePoolSize() + delta;
+        // The core size can never exceed the maximum
+        if (delta > 0) {
+            this.executor.setMaximumPoolSize(size);
+            this.executor.setCorePoolSize(size);
+        } else {
+            this.executor.setCorePoolSize(size);
+            this.executor.setMaximumPoolSize(size);
+        }
+    }
+
+    private static void complete(Client client) {
+        try {
+            client.emitter.complete();
+        } catch (IllegalStateException e) {
+            // Already completed
+        }
+    }
+
+    private static final class Client {
+        private final SseEmitter emitter;
+
+        private final BlockingQueue<Frame> queue;
+
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        // Start of the write in progress, IDLE between writes, STALLED once given up
+        private final AtomicLong writingSince = new AtomicLong(IDLE);
+
+        private volatile boolean closed;
+
+        private Client(SseEmitter emitter, int bufferSize) {
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+    }
+
+    private static final class Frame {
+        private final String id;
+
+        private final String name;
+
+        private final String data;
+
+        private Frame(String id, String name, String data) {
+            this.id = id;
+            this.name = name;
+            this.data = data;
+        }
+
+        private SseEmitter.SseEventBuilder toEvent() {
+            if (this.name == null) {
+                return SseEmitter.event().comment("");
+            }
+            return SseEmitter.event().id(this.id).name(this.name).data(this.data);
+        }
+    }
+}
@@ -2,10 +2,11 @@ package com.openclassrooms.starterjwt.controllers;
 
 import com.openclassrooms.starterjwt.mapper.TeacherMapper;
 import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.services.ResourceVersions;
 import com.openclassrooms.starterjwt.services.TeacherService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import java.util.List;
+import org.springframework.web.context.request.WebRequest;
 
 
 @CrossOrigin(origins = "*", maxAge = 3600)
@@ -14,12 +15,18 @@ import java.util.List;
 public class TeacherController {
     private final TeacherMapper teacherMapper;
     private final TeacherService teacherService;
+    private final ResourceVersions resourceVersions;
+    private final JsonResponseCache jsonResponseCache;
 
 
     public TeacherController(TeacherService teacherService,
-                             TeacherMapper teacherMapper) {
+                             TeacherMapper teacherMapper,
+                             ResourceVersions resourceVersions,
+                             JsonResponseCache jsonResponseCache) {
         this.teacherMapper = teacherMapper;
         this.teacherService = teacherService;
+        this.resourceVersions = resourceVersions;
+        this.jsonResponseCache = jsonResponseCache;
     }
 
     @GetMapping("/{id}")
@@ -38,9 +45,9 @@ public class TeacherController {
     }
 
     @GetMapping()
-    public ResponseEntity<?> findAll() {
-        List<Teacher> teachers = this.teacherService.findAll();
-
-        return ResponseEntity.ok().body(this.teacherMapper.toDto(teachers));
+    public ResponseEntity<?> findAll(WebRequest request) {
+        // The version is read before the teachers, see ResourceVersions
+        String tag = this.resourceVersions.teachersTag();
+        return this.jsonResponseCache.respond("teachers", tag, () -> this.teacherMapper.toDto(this.teacherService.findAll()), request);
     }
 }
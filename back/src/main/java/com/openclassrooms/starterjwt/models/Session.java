@@ -1,23 +1,28 @@
 package com.openclassrooms.starterjwt.models;
 
 
+import com.openclassrooms.starterjwt.services.ResourceVersionListener;
 import lombok.*;
 import lombok.experimental.Accessors;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import javax.persistence.*;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 import java.time.LocalDateTime;
 import java.util.Date;
-import java.util.List;
+import java.util.Set;
 
 @Entity
-@Table(name = "SESSIONS")
-@EntityListeners(AuditingEntityListener.class)
+@Table(name = "SESSIONS", indexes = {
+        @Index(name = "idx_sessions_date_id", columnList = "date, id")
+})
+@EntityListeners({AuditingEntityListener.class, ResourceVersionListener.class})
 @Data
 @Accessors(chain = true)
 @EqualsAndHashCode(of = {"id"})
@@ -41,16 +46,34 @@ public class Session {
     @Size(max = 2500)
     private String description;
 
+    // No limit when null
+    @Min(1)
+    private Integer capacity;
+
+    // Only changed by the booking statements of SessionRepository, never by entity writes
+    @Builder.Default
+    @Column(name = "seats_taken", insertable = false, updatable = false)
+    private Integer seatsTaken = 0;
+
+    // Booking goes through the waiting room until then, see WaitingRoom
+    @Column(name = "booking_opens_at")
+    private Date bookingOpensAt;
+
+    // Seats are drawn among the requests made until the opening window closes, see BookingLottery
+    private boolean lottery;
+
     @OneToOne
     @JoinColumn(name = "teacher_id", referencedColumnName = "id")
     private Teacher teacher;
 
-    @ManyToMany(fetch = FetchType.EAGER)
-    @JoinTable(
+    @ElementCollection(fetch = FetchType.EAGER)
+    @BatchSize(size = 100)
+    @CollectionTable(
             name = "PARTICIPATE",
             joinColumns = @JoinColumn( name = "session_id" ),
-            inverseJoinColumns = @JoinColumn( name = "user_id" ) )
-    private List<User> users;
+            uniqueConstraints = @UniqueConstraint(name = "idx_participate_session_user", columnNames = {"session_id", "user_id"}) )
+    @Column(name = "user_id")
+    private Set<Long> userIds;
 
     @CreatedDate
     @Column(name = "created_at", updatable = false)
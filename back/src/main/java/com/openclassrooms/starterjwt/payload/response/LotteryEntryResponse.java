@@ -0,0 +1,14 @@
+package com.openclassrooms.starterjwt.payload.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.Date;
+
+@Data
+@AllArgsConstructor
+public class LotteryEntryResponse {
+    private Long sessionId;
+
+    private Date drawAt;
+}
@@ -0,0 +1,18 @@
+package com.openclassrooms.starterjwt.payload.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class QueueTicketResponse {
+    private String ticket;
+
+    private Long sessionId;
+
+    private String state;
+
+    private long position;
+
+    private int status;
+}
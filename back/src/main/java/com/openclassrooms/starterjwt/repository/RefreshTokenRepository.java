@@ -0,0 +1,33 @@
+package com.openclassrooms.starterjwt.repository;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.openclassrooms.starterjwt.models.RefreshToken;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+  Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+  @Modifying
+  @Transactional
+  @Query("delete from RefreshToken t where t.id = :id")
+  int deleteOne(@Param("id") Long id);
+
+  @Modifying
+  @Transactional
+  @Query("delete from RefreshToken t where t.userId = :userId")
+  int deleteByUserId(@Param("userId") Long userId);
+
+  @Modifying
+  @Transactional
+  @Query("delete from RefreshToken t where t.expiresAt < :now")
+  int deleteExpired(@Param("now") Instant now);
+}
@@ -1,9 +1,78 @@
 package com.openclassrooms.starterjwt.repository;
 
 import com.openclassrooms.starterjwt.models.Session;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.QueryHint;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface SessionRepository  extends JpaRepository<Session, Long> {
+    // distinct only removes the duplicated roots of the participants join, it is not needed in SQL
+    @Query("select distinct s from Session s left join fetch s.teacher left join fetch s.userIds order by s.id")
+    @QueryHints(@QueryHint(name = "hibernate.query.passDistinctThrough", value = "false"))
+    List<Session> findAllWithTeacherAndParticipants();
+
+    @Query("select distinct s from Session s left join fetch s.teacher left join fetch s.userIds where s.id = :id")
+    @QueryHints(@QueryHint(name = "hibernate.query.passDistinctThrough", value = "false"))
+    Optional<Session> findWithTeacherAndParticipantsById(@Param("id") Long id);
+
+    // Participants are not joined here so that the limit applies in SQL, they are batch loaded instead
+    @Query("select s from Session s left join fetch s.teacher order by s.date, s.id")
+    List<Session> findFirstPage(Pageable pageable);
+
+    @Query("select s from Session s left join fetch s.teacher where s.date > :date or (s.date = :date and s.id > :id) order by s.date, s.id")
+    List<Session> findPageAfter(@Param("date") Date date, @Param("id") Long id, Pageable pageable);
+
+    @Query("select s.bookingOpensAt from Session s where s.id = :id")
+    Optional<Date> findBookingOpensAtById(@Param("id") Long id);
+
+    @Query("select s.bookingOpensAt from Session s where s.id = :id and s.lottery = true")
+    Optional<Date> findLotteryOpensAtById(@Param("id") Long id);
+
+    // Native writes name the tables they change, otherwise Hibernate empties every second-level cache region
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = "org.hibernate.query.native.spaces", value = "PARTICIPATE"))
+    @Query(value = "insert into PARTICIPATE (session_id, user_id) values (:sessionId, :userId)", nativeQuery = true)
+    int addParticipant(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+    @Query(value = "select count(*) from PARTICIPATE where session_id = :sessionId and user_id = :userId", nativeQuery = true)
+    int countParticipant(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = "org.hibernate.query.native.spaces", value = "PARTICIPATE"))
+    @Query(value = "delete from PARTICIPATE where session_id = :sessionId and user_id = :userId", nativeQuery = true)
+    int removeParticipant(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+    // The row lock taken by this update serializes bookings of one session only
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = "org.hibernate.query.native.spaces", value = "SESSIONS"))
+    @Query(value = "update SESSIONS set seats_taken = seats_taken + 1 where id = :id and (capacity is null or seats_taken < capacity)", nativeQuery = true)
+    int takeSeat(@Param("id") Long id);
+
+    // For newcomers: a seat freed while users are waitlisted is theirs, the promotion worker hands it out in order
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = "org.hibernate.query.native.spaces", value = "SESSIONS"))
+    @Query(value = "update SESSIONS set seats_taken = seats_taken + 1 where id = :id and (capacity is null or seats_taken < capacity)"
+            + " and not exists (select 1 from WAITLIST where session_id = :id)", nativeQuery = true)
+    int takeSeatAheadOfWaitlist(@Param("id") Long id);
+
+    @Modifying
+    @Transactional
+    @QueryHints(@QueryHint(name = "org.hibernate.query.native.spaces", value = "SESSIONS"))
+    @Query(value = "update SESSIONS set seats_taken = seats_taken - 1 where id = :id and seats_taken > 0", nativeQuery = true)
+    int releaseSeat(@Param("id") Long id);
 }
@@ -0,0 +1,35 @@
+package com.openclassrooms.starterjwt.repository;
+
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.openclassrooms.starterjwt.models.WaitlistEntry;
+
+@Repository
+public interface WaitlistRepository extends JpaRepository<WaitlistEntry, Long> {
+  /**
+   * Oldest entries first, restricted to sessions that currently have a free seat.
+   */
+  @Query(value = "select w.* from WAITLIST w join SESSIONS s on s.id = w.session_id"
+      + " where s.capacity is null or s.seats_taken < s.capacity order by w.id", nativeQuery = true)
+  List<WaitlistEntry> findPromotable(Pageable pageable);
+
+  boolean existsBySessionId(Long sessionId);
+
+  @Modifying
+  @Transactional
+  @Query("delete from WaitlistEntry w where w.id = :id")
+  int deleteOne(@Param("id") Long id);
+
+  @Modifying
+  @Transactional
+  @Query("delete from WaitlistEntry w where w.sessionId = :sessionId and w.userId = :userId")
+  int deleteBySessionIdAndUserId(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+}
@@ -0,0 +1,79 @@
+package com.openclassrooms.starterjwt.security.crypto;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Picks the BCrypt cost used for new hashes. Unless {@code oc.app.passwordHashStrength} is set,
+ * the cost is calibrated at startup: the highest cost whose hashing time on this host stays
+ * under {@code oc.app.passwordHashTargetMs}.
+ */
+@Component
+public class BCryptStrengthCalibrator {
+  private static final Logger logger = LoggerFactory.getLogger(BCryptStrengthCalibrator.class);
+
+  private static final String SAMPLE_PASSWORD = "calibration-password";
+
+  private final int strength;
+
+  BCryptStrengthCalibrator(@Value("${oc.app.passwordHashStrength:0}") int configuredStrength,
+      @Value("${oc.app.passwordHashTargetMs:100}") long targetMs,
+      @Value("${oc.app.passwordHashMinStrength:10}") int minStrength,
+      @Value("${oc.app.passwordHashMaxStrength:16}") int maxStrength) {
+    if (configuredStrength > 0) {
+      this.strength = configuredStrength;
+    } else {
+      this.strength = calibrate(targetMs, minStrength, maxStrength);
+      logger.info("BCrypt strength calibrated to {} for a {} ms target", strength, targetMs);
+    }
+  }
+
+  public int getStrength() {
+    return strength;
+  }
+
+  /**
+   * Whether the given BCrypt hash was produced with the current cost.
+   */
+  public boolean hasCurrentStrength(String encodedPassword) {
+    return strengthOf(encodedPassword) == strength;
+  }
+
+  static int strengthOf(String encodedPassword) {
+    // BCrypt hashes look like $2a$10$<salt+hash>
+    if (encodedPassword == null || encodedPassword.length() < 7 || encodedPassword.charAt(0) != '$') {
+      return -1;
+    }
+    try {
+      return Integer.parseInt(encodedPassword.substring(4, 6));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  static int calibrate(long targetMs, int minStrength, int maxStrength) {
+    // Warm up the JIT so the first measurement is not inflated
+    new BCryptPasswordEncoder(4).encode(SAMPLE_PASSWORD);
+
+    int selected = minStrength;
+    for (int candidate = minStrength; candidate <= maxStrength; candidate++) {
+      long start = System.nanoTime();
+      new BCryptPasswordEncoder(candidate).encode(SAMPLE_PASSWORD);
+      long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+      if (elapsedMs > targetMs) {
+        break;
+      }
+      selected = candidate;
+
+      // Each step doubles the cost, stop before a step that would certainly overshoot
+      if (elapsedMs * 2 > targetMs) {
+        break;
+      }
+    }
+    return selected;
+  }
+}
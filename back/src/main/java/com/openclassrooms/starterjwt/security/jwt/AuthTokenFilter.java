@@ -17,7 +17,10 @@ import org.springframework.security.web.authentication.WebAuthenticationDetailsS
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import com.openclassrooms.starterjwt.security.services.TokenRevocationService;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
 import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
+import com.openclassrooms.starterjwt.security.services.UserRevalidationService;
 
 public class AuthTokenFilter extends OncePerRequestFilter {
   @Autowired
@@ -26,6 +29,12 @@ public class AuthTokenFilter extends OncePerRequestFilter {
   @Autowired
   private UserDetailsServiceImpl userDetailsService;
 
+  @Autowired
+  private UserRevalidationService userRevalidationService;
+
+  @Autowired
+  private TokenRevocationService tokenRevocationService;
+
   private static final Logger logger = LoggerFactory.getLogger(AuthTokenFilter.class);
 
   @Override
@@ -33,14 +42,13 @@ public class AuthTokenFilter extends OncePerRequestFilter {
       throws ServletException, IOException {
     try {
       String jwt = parseJwt(request);
-      if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
-
-        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+      JwtClaims claims = jwtUtils.parseJwtToken(jwt);
+      UserDetails userDetails = claims != null ? loadUserDetails(claims) : null;
+      if (userDetails != null) {
         UsernamePasswordAuthenticationToken authentication =
             new UsernamePasswordAuthenticationToken(
                 userDetails,
-                null,
+                claims,
                 userDetails.getAuthorities());
         authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
@@ -53,6 +61,32 @@ public class AuthTokenFilter extends OncePerRequestFilter {
     filterChain.doFilter(request, response);
   }
 
+  private UserDetails loadUserDetails(JwtClaims claims) {
+    if (tokenRevocationService.isRevoked(claims.getTokenId())) {
+      logger.error("JWT token is revoked: {}", claims.getTokenId());
+      return null;
+    }
+
+    if (claims.getId() == null) {
+      // Token issued before identity claims were embedded
+      return userDetailsService.loadUserByUsername(claims.getSubject());
+    }
+
+    if (!userRevalidationService.isStillActive(claims.getId())) {
+      logger.error("User of JWT token no longer exists: {}", claims.getSubject());
+      return null;
+    }
+
+    return UserDetailsImpl
+        .builder()
+        .id(claims.getId())
+        .username(claims.getSubject())
+        .firstName(claims.getFirstName())
+        .lastName(claims.getLastName())
+        .admin(claims.getAdmin())
+        .build();
+  }
+
   private String parseJwt(HttpServletRequest request) {
     String headerAuth = request.getHeader("Authorization");
 
@@ -0,0 +1,28 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import java.util.Date;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+@Builder
+@AllArgsConstructor
+@Getter
+public class JwtClaims {
+  private String tokenId;
+
+  private String subject;
+
+  private Long id;
+
+  private String firstName;
+
+  private String lastName;
+
+  private Boolean admin;
+
+  private Date issuedAt;
+
+  private Date expiration;
+}
@@ -1,47 +1,171 @@
 package com.openclassrooms.starterjwt.security.jwt;
 
+import java.security.Key;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.crypto.spec.SecretKeySpec;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
 
 import io.jsonwebtoken.*;
+import io.jsonwebtoken.impl.TextCodec;
 
 @Component
 public class JwtUtils {
   private static final Logger logger = LoggerFactory.getLogger(JwtUtils.class);
 
+  private static final int DEFAULT_CACHE_SIZE = 10_000;
+
+  static final String CLAIM_ID = "id";
+  static final String CLAIM_FIRST_NAME = "firstName";
+  static final String CLAIM_LAST_NAME = "lastName";
+  static final String CLAIM_ADMIN = "admin";
+
+  private static final SignatureAlgorithm SIGNATURE_ALGORITHM = SignatureAlgorithm.HS512;
+
   @Value("${oc.app.jwtSecret}")
   private String jwtSecret;
 
+  @Value("${oc.app.jwtKeyId:default}")
+  private String jwtKeyId = "default";
+
+  @Value("${oc.app.jwtPreviousKeys:}")
+  private String jwtPreviousKeys = "";
+
   @Value("${oc.app.jwtExpirationMs}")
   private int jwtExpirationMs;
 
-  public String generateJwtToken(Authentication authentication) {
+  private Cache<String, JwtClaims> verifiedTokens = buildVerifiedTokenCache(DEFAULT_CACHE_SIZE);
+
+  private Key signingKey;
+
+  private Map<String, Key> verificationKeys;
+
+  private JwtParser jwtParser;
+
+  @Value("${oc.app.jwtCacheSize:" + DEFAULT_CACHE_SIZE + "}")
+  void setJwtCacheSize(int jwtCacheSize) {
+    this.verifiedTokens = buildVerifiedTokenCache(jwtCacheSize);
+  }
+
+  /**
+   * Prepares the keys and the parser once. Tokens are signed with {@code oc.app.jwtSecret} and
+   * tagged with {@code oc.app.jwtKeyId}; {@code oc.app.jwtPreviousKeys} lists {@code kid:secret}
+   * pairs that are still accepted while tokens signed before a rotation expire. Tokens without a
+   * {@code kid} header are verified with the current secret.
+   */
+  @PostConstruct
+  void init() {
+    signingKey = toKey(jwtSecret);
+
+    Map<String, Key> keys = new HashMap<>();
+    for (String entry : StringUtils.commaDelimitedListToStringArray(jwtPreviousKeys)) {
+      int separator = entry.indexOf(':');
+      if (separator <= 0) {
+        throw new IllegalArgumentException("Invalid entry in oc.app.jwtPreviousKeys, expected kid:secret");
+      }
+      keys.put(entry.substring(0, separator).trim(), toKey(entry.substring(separator + 1).trim()));
+    }
+    keys.put(jwtKeyId, signingKey);
+    verificationKeys = Collections.unmodifiableMap(keys);
+
+    // The parser is only read once configured, so a single instance is shared by all requests
+    jwtParser = Jwts.parser().setSigningKeyResolver(new SigningKeyResolverAdapter() {
+      @Override
+      public Key resolveSigningKey(JwsHeader header, Claims claims) {
+        String keyId = header.getKeyId();
+        if (keyId == null) {
+          return signingKey;
+        }
+        Key key = verificationKeys.get(keyId);
+        if (key == null) {
+          throw new SignatureException("Unknown JWT key id: " + keyId);
+        }
+        return key;
+      }
+    });
+  }
 
-    UserDetailsImpl userPrincipal = (UserDetailsImpl) authentication.getPrincipal();
+  public String generateJwtToken(Authentication authentication) {
+    return generateJwtToken((UserDetailsImpl) authentication.getPrincipal());
+  }
 
+  public String generateJwtToken(UserDetailsImpl userPrincipal) {
     return Jwts.builder()
+        .setHeaderParam(JwsHeader.KEY_ID, jwtKeyId)
+        .setId(UUID.randomUUID().toString())
         .setSubject((userPrincipal.getUsername()))
+        .claim(CLAIM_ID, userPrincipal.getId())
+        .claim(CLAIM_FIRST_NAME, userPrincipal.getFirstName())
+        .claim(CLAIM_LAST_NAME, userPrincipal.getLastName())
+        .claim(CLAIM_ADMIN, userPrincipal.getAdmin())
         .setIssuedAt(new Date())
         .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-        .signWith(SignatureAlgorithm.HS512, jwtSecret)
+        .signWith(SIGNATURE_ALGORITHM, signingKey)
         .compact();
   }
 
   public String getUserNameFromJwtToken(String token) {
-    return Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(token).getBody().getSubject();
+    JwtClaims claims = parseJwtToken(token);
+    return claims != null ? claims.getSubject() : null;
   }
 
   public boolean validateJwtToken(String authToken) {
+    return parseJwtToken(authToken) != null;
+  }
+
+  /**
+   * Verifies the token signature and expiration once and returns its claims, or {@code null}
+   * when the token is invalid. Verified tokens are kept until their own expiration so that
+   * repeated requests carrying the same token skip the signature check.
+   */
+  public JwtClaims parseJwtToken(String authToken) {
+    if (authToken == null) {
+      return null;
+    }
+
+    JwtClaims cached = verifiedTokens.getIfPresent(authToken);
+    if (cached != null) {
+      return cached;
+    }
+
+    JwtClaims claims = verifyJwtToken(authToken);
+    if (claims != null && claims.getExpiration() != null) {
+      verifiedTokens.put(authToken, claims);
+    }
+    return claims;
+  }
+
+  JwtClaims verifyJwtToken(String authToken) {
     try {
-      Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(authToken);
-      return true;
+      Claims body = jwtParser.parseClaimsJws(authToken).getBody();
+      Number id = body.get(CLAIM_ID, Number.class);
+      return JwtClaims.builder()
+          .tokenId(body.getId())
+          .subject(body.getSubject())
+          .id(id != null ? id.longValue() : null)
+          .firstName(body.get(CLAIM_FIRST_NAME, String.class))
+          .lastName(body.get(CLAIM_LAST_NAME, String.class))
+          .admin(body.get(CLAIM_ADMIN, Boolean.class))
+          .issuedAt(body.getIssuedAt())
+          .expiration(body.getExpiration())
+          .build();
     } catch (SignatureException e) {
       logger.error("Invalid JWT signature: {}", e.getMessage());
     } catch (MalformedJwtException e) {
@@ -54,6 +178,34 @@ public class JwtUtils {
       logger.error("JWT claims string is empty: {}", e.getMessage());
     }
 
-    return false;
+    return null;
+  }
+
+  private static Key toKey(String secret) {
+    // Same key bytes as the base64 string secret previously handed to jjwt on each call
+    return new SecretKeySpec(TextCodec.BASE64.decode(secret), SIGNATURE_ALGORITHM.getJcaName());
+  }
+
+  private static Cache<String, JwtClaims> buildVerifiedTokenCache(int maximumSize) {
+    return Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfter(new Expiry<String, JwtClaims>() {
+          @Override
+          public long expireAfterCreate(String token, JwtClaims claims, long currentTime) {
+            long remainingMs = claims.getExpiration().getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMs, 0));
+          }
+
+          @Override
+          public long expireAfterUpdate(String token, JwtClaims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+          }
+
+          @Override
+          public long expireAfterRead(String token, JwtClaims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+          }
+        })
+        .build();
   }
 }
@@ -0,0 +1,182 @@
+package com.openclassrooms.starterjwt.security.services;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.openclassrooms.starterjwt.exception.TooManyRequestsException;
+
+/**
+ * Token-bucket throttling of login attempts, keyed by email and by client address. Buckets are
+ * guarded by a fixed set of striped locks and dropped once idle. A failed attempt costs
+ * {@code oc.app.loginFailureCost} tokens instead of one.
+ */
+@Service
+public class LoginRateLimiter {
+  private static final int STRIPES = 64;
+
+  private static final String EMAIL_PREFIX = "e:";
+
+  private static final String ADDRESS_PREFIX = "a:";
+
+  private final Object[] locks = new Object[STRIPES];
+
+  private final ConcurrentMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+  private final Policy emailPolicy;
+
+  private final Policy addressPolicy;
+
+  private final double failureCost;
+
+  private final long idleNanos;
+
+  private final LongSupplier clock;
+
+  @Autowired
+  LoginRateLimiter(@Value("${oc.app.loginEmailCapacity:5}") int emailCapacity,
+      @Value("${oc.app.loginEmailRefillPerMinute:5}") double emailRefillPerMinute,
+      @Value("${oc.app.loginAddressCapacity:30}") int addressCapacity,
+      @Value("${oc.app.loginAddressRefillPerMinute:60}") double addressRefillPerMinute,
+      @Value("${oc.app.loginFailureCost:3}") double failureCost,
+      @Value("${oc.app.loginIdleEvictionMs:600000}") long idleEvictionMs) {
+    this(new Policy(emailCapacity, emailRefillPerMinute), new Policy(addressCapacity, addressRefillPerMinute),
+        failureCost, idleEvictionMs, System::nanoTime);
+  }
+
+  LoginRateLimiter(Policy emailPolicy, Policy addressPolicy, double failureCost, long idleEvictionMs,
+      LongSupplier clock) {
+    for (int i = 0; i < STRIPES; i++) {
+      locks[i] = new Object();
+    }
+    this.emailPolicy = emailPolicy;
+    this.addressPolicy = addressPolicy;
+    this.failureCost = failureCost;
+    this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleEvictionMs);
+    this.clock = clock;
+  }
+
+  /**
+   * Takes one token from both the email and the address buckets, or throws
+   * {@link TooManyRequestsException} without taking any when either is empty.
+   */
+  public void acquire(String email, String remoteAddress) {
+    String emailKey = EMAIL_PREFIX + email.toLowerCase(Locale.ROOT);
+    String addressKey = ADDRESS_PREFIX + remoteAddress;
+
+    long emailWait = consume(emailKey, emailPolicy, 1);
+    if (emailWait > 0) {
+      throw new TooManyRequestsException(toRetryAfterSeconds(emailWait));
+    }
+
+    long addressWait = consume(addressKey, addressPolicy, 1);
+    if (addressWait > 0) {
+      refund(emailKey, emailPolicy, 1);
+      throw new TooManyRequestsException(toRetryAfterSeconds(addressWait));
+    }
+  }
+
+  /**
+   * Charges the extra cost of a failed attempt, on top of the token already taken by
+   * {@link #acquire(String, String)}.
+   */
+  public void recordFailure(String email, String remoteAddress) {
+    double extraCost = failureCost - 1;
+    if (extraCost <= 0) {
+      return;
+    }
+    charge(EMAIL_PREFIX + email.toLowerCase(Locale.ROOT), emailPolicy, extraCost);
+    charge(ADDRESS_PREFIX + remoteAddress, addressPolicy, extraCost);
+  }
+
+  @Scheduled(fixedDelayString = "${oc.app.loginIdleEvictionMs:600000}")
+  public void evictIdleBuckets() {
+    long now = clock.getAsLong();
+    buckets.forEach((key, bucket) -> {
+      synchronized (lockFor(key)) {
+        if (now - bucket.lastAccess > idleNanos) {
+          buckets.remove(key, bucket);
+        }
+      }
+    });
+  }
+
+  int size() {
+    return buckets.size();
+  }
+
+  private long consume(String key, Policy policy, double cost) {
+    synchronized (lockFor(key)) {
+      Bucket bucket = refill(key, policy);
+      if (bucket.tokens >= cost) {
+        bucket.tokens -= cost;
+        return 0;
+      }
+      return (long) Math.ceil((cost - bucket.tokens) / policy.tokensPerNano);
+    }
+  }
+
+  private void refund(String key, Policy policy, double amount) {
+    synchronized (lockFor(key)) {
+      Bucket bucket = refill(key, policy);
+      bucket.tokens = Math.min(policy.capacity, bucket.tokens + amount);
+    }
+  }
+
+  private void charge(String key, Policy policy, double amount) {
+    synchronized (lockFor(key)) {
+      Bucket bucket = refill(key, policy);
+      // Debt is capped so that a burst of failures locks the key for at most one full refill
+      bucket.tokens = Math.max(-policy.capacity, bucket.tokens - amount);
+    }
+  }
+
+  private Bucket refill(String key, Policy policy) {
+    long now = clock.getAsLong();
+    Bucket bucket = buckets.computeIfAbsent(key, k -> new Bucket(policy.capacity, now));
+    bucket.tokens = Math.min(policy.capacity, bucket.tokens + (now - bucket.lastRefill) * policy.tokensPerNano);
+    bucket.lastRefill = now;
+    bucket.lastAccess = now;
+    return bucket;
+  }
+
+  private Object lockFor(String key) {
+    return locks[(key.hashCode() & 0x7fffffff) % STRIPES];
+  }
+
+  private static long toRetryAfterSeconds(long waitNanos) {
+    return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+  }
+
+  static final class Policy {
+    private final double capacity;
+
+    private final double tokensPerNano;
+
+    Policy(double capacity, double refillPerMinute) {
+      this.capacity = capacity;
+      this.tokensPerNano = refillPerMinute / TimeUnit.MINUTES.toNanos(1);
+    }
+  }
+
+  private static final class Bucket {
+    private double tokens;
+
+    private long lastRefill;
+
+    private long lastAccess;
+
+    private Bucket(double tokens, long now) {
+      this.tokens = tokens;
+      this.lastRefill = now;
+      this.lastAccess = now;
+    }
+  }
+}
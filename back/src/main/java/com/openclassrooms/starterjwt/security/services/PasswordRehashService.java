@@ -0,0 +1,57 @@
+package com.openclassrooms.starterjwt.security.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import com.openclassrooms.starterjwt.exception.ServiceUnavailableException;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.crypto.BCryptStrengthCalibrator;
+import com.openclassrooms.starterjwt.services.UserCache;
+
+/**
+ * Re-hashes, after a successful login, the passwords stored with a BCrypt cost other than the
+ * calibrated one, so that login CPU follows the host the application runs on.
+ */
+@Service
+public class PasswordRehashService {
+  private static final Logger logger = LoggerFactory.getLogger(PasswordRehashService.class);
+
+  private final PasswordEncoder passwordEncoder;
+
+  private final BCryptStrengthCalibrator strengthCalibrator;
+
+  private final UserRepository userRepository;
+
+  private final UserCache userCache;
+
+  PasswordRehashService(PasswordEncoder passwordEncoder,
+      BCryptStrengthCalibrator strengthCalibrator,
+      UserRepository userRepository,
+      UserCache userCache) {
+    this.passwordEncoder = passwordEncoder;
+    this.strengthCalibrator = strengthCalibrator;
+    this.userRepository = userRepository;
+    this.userCache = userCache;
+  }
+
+  public boolean needsRehash(String encodedPassword) {
+    return encodedPassword != null && !strengthCalibrator.hasCurrentStrength(encodedPassword);
+  }
+
+  @Async
+  public void rehash(Long userId, String encodedPassword, String rawPassword) {
+    try {
+      String rehashedPassword = passwordEncoder.encode(rawPassword);
+
+      // Only replaces the hash that was verified, a concurrent password change wins
+      if (userRepository.updatePassword(userId, encodedPassword, rehashedPassword) > 0) {
+        userCache.invalidate(userId);
+      }
+    } catch (ServiceUnavailableException e) {
+      logger.debug("Password rehash of user {} postponed, hashing pool is full", userId);
+    }
+  }
+}
@@ -0,0 +1,96 @@
+package com.openclassrooms.starterjwt.security.services;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.openclassrooms.starterjwt.models.RefreshToken;
+import com.openclassrooms.starterjwt.repository.RefreshTokenRepository;
+
+/**
+ * Issues and rotates opaque refresh tokens. Only a SHA-256 hash of each token is stored, and
+ * each token can be exchanged once.
+ */
+@Service
+public class RefreshTokenService {
+  private static final SecureRandom secureRandom = new SecureRandom();
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private final RefreshTokenRepository refreshTokenRepository;
+
+  private final long refreshExpirationMs;
+
+  RefreshTokenService(RefreshTokenRepository refreshTokenRepository,
+      @Value("${oc.app.jwtRefreshExpirationMs}") long refreshExpirationMs) {
+    this.refreshTokenRepository = refreshTokenRepository;
+    this.refreshExpirationMs = refreshExpirationMs;
+  }
+
+  public String create(Long userId) {
+    byte[] bytes = new byte[32];
+    secureRandom.nextBytes(bytes);
+    String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+    refreshTokenRepository.save(RefreshToken.builder()
+        .userId(userId)
+        .tokenHash(hash(token))
+        .expiresAt(Instant.now().plusMillis(refreshExpirationMs))
+        .build());
+
+    return token;
+  }
+
+  /**
+   * Consumes a refresh token and returns the id of its user, or an empty result when the token
+   * is unknown, expired or was already exchanged.
+   */
+  @Transactional
+  public Optional<Long> consume(String token) {
+    Optional<RefreshToken> stored = refreshTokenRepository.findByTokenHash(hash(token));
+    if (stored.isEmpty()) {
+      return Optional.empty();
+    }
+
+    RefreshToken refreshToken = stored.get();
+    // The delete only succeeds once, so concurrent exchanges of the same token cannot both win
+    if (refreshTokenRepository.deleteOne(refreshToken.getId()) == 0
+        || refreshToken.getExpiresAt().isBefore(Instant.now())) {
+      return Optional.empty();
+    }
+
+    return Optional.of(refreshToken.getUserId());
+  }
+
+  public void revokeAll(Long userId) {
+    refreshTokenRepository.deleteByUserId(userId);
+  }
+
+  @Scheduled(fixedDelayString = "${oc.app.refreshTokenPurgeMs:3600000}")
+  public void purgeExpired() {
+    refreshTokenRepository.deleteExpired(Instant.now());
+  }
+
+  static String hash(String token) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+      char[] hex = new char[digest.length * 2];
+      for (int i = 0; i < digest.length; i++) {
+        hex[i * 2] = HEX[(digest[i] >> 4) & 0xf];
+        hex[i * 2 + 1] = HEX[digest[i] & 0xf];
+      }
+      return new String(hex);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+}
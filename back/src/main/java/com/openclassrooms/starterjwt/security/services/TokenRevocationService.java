@@ -0,0 +1,142 @@
+package com.openclassrooms.starterjwt.security.services;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+
+import com.openclassrooms.starterjwt.models.RevokedToken;
+import com.openclassrooms.starterjwt.repository.RevokedTokenRepository;
+
+/**
+ * Keeps the ids ({@code jti}) of revoked tokens until they expire. Lookups go through a Bloom
+ * filter backed by an exact set, so the check done on every request neither allocates nor
+ * queries the database. Revocations are persisted and reloaded on startup and on each prune.
+ */
+@Service
+public class TokenRevocationService {
+  private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+  private static final int HASH_FUNCTIONS = 4;
+
+  private final RevokedTokenRepository revokedTokenRepository;
+
+  private final int bloomBits;
+
+  private volatile Snapshot snapshot;
+
+  TokenRevocationService(RevokedTokenRepository revokedTokenRepository,
+      @Value("${oc.app.revocationBloomBits:1048576}") int bloomBits) {
+    this.revokedTokenRepository = revokedTokenRepository;
+    this.bloomBits = bloomBits;
+    this.snapshot = new Snapshot(bloomBits);
+  }
+
+  public boolean isRevoked(String jti) {
+    if (jti == null) {
+      return false;
+    }
+    Snapshot current = snapshot;
+    return current.mightContain(jti) && current.revoked.containsKey(jti);
+  }
+
+  public synchronized void revoke(String jti, Instant expiresAt) {
+    if (jti == null || expiresAt.isBefore(Instant.now())) {
+      return;
+    }
+    revokedTokenRepository.save(RevokedToken.builder().jti(jti).expiresAt(expiresAt).build());
+    snapshot.add(jti, expiresAt.toEpochMilli());
+  }
+
+  /**
+   * Drops expired revocations and rebuilds the filter from the persisted ones, which also picks
+   * up revocations made by other instances.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  @Scheduled(initialDelayString = "${oc.app.revocationPruneMs:60000}", fixedDelayString = "${oc.app.revocationPruneMs:60000}")
+  public synchronized void prune() {
+    Instant now = Instant.now();
+    long nowMillis = now.toEpochMilli();
+    Snapshot rebuilt = new Snapshot(bloomBits);
+    try {
+      revokedTokenRepository.deleteExpired(now);
+      for (RevokedToken revokedToken : revokedTokenRepository.findByExpiresAtAfter(now)) {
+        rebuilt.add(revokedToken.getJti(), revokedToken.getExpiresAt().toEpochMilli());
+      }
+    } catch (DataAccessException | TransactionException e) {
+      // Keep serving from memory, the next prune retries the reload
+      logger.warn("Cannot reload revoked tokens: {}", e.getMessage());
+    }
+    for (Map.Entry<String, Long> entry : snapshot.revoked.entrySet()) {
+      if (entry.getValue() > nowMillis) {
+        rebuilt.add(entry.getKey(), entry.getValue());
+      }
+    }
+    snapshot = rebuilt;
+  }
+
+  int size() {
+    return snapshot.revoked.size();
+  }
+
+  private static final class Snapshot {
+    private final AtomicLongArray bits;
+
+    private final int bitCount;
+
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+
+    private Snapshot(int bitCount) {
+      this.bitCount = bitCount;
+      this.bits = new AtomicLongArray((bitCount + 63) / 64);
+    }
+
+    private void add(String jti, long expiresAtMillis) {
+      revoked.put(jti, expiresAtMillis);
+      int hash = jti.hashCode();
+      int step = spread(hash);
+      for (int i = 0; i < HASH_FUNCTIONS; i++) {
+        int bit = ((hash + i * step) & 0x7fffffff) % bitCount;
+        long mask = 1L << bit;
+        int word = bit >>> 6;
+        long current;
+        do {
+          current = bits.get(word);
+        } while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+      }
+    }
+
+    private boolean mightContain(String jti) {
+      int hash = jti.hashCode();
+      int step = spread(hash);
+      for (int i = 0; i < HASH_FUNCTIONS; i++) {
+        int bit = ((hash + i * step) & 0x7fffffff) % bitCount;
+        if ((bits.get(bit >>> 6) & (1L << bit)) == 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static int spread(int hash) {
+      // Second, independent hash for double hashing (murmur3 finalizer), forced odd
+      int h = hash;
+      h ^= h >>> 16;
+      h *= 0x85ebca6b;
+      h ^= h >>> 13;
+      h *= 0xc2b2ae35;
+      h ^= h >>> 16;
+      return h | 1;
+    }
+  }
+}
@@ -8,6 +8,7 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.openclassrooms.starterjwt.models.User;
 
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -31,6 +32,18 @@ public class UserDetailsImpl implements UserDetails {
 
   @JsonIgnore
   private String password;  
+
+  public static UserDetailsImpl build(User user) {
+    return UserDetailsImpl
+            .builder()
+            .id(user.getId())
+            .username(user.getEmail())
+            .lastName(user.getLastName())
+            .firstName(user.getFirstName())
+            .admin(user.isAdmin())
+            .password(user.getPassword())
+            .build();
+  }
   
   public Collection<? extends GrantedAuthority> getAuthorities() {        
       return new HashSet<GrantedAuthority>();
@@ -7,30 +7,23 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.openclassrooms.starterjwt.models.User;
-import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.services.UserCache;
 
 @Service
 public class UserDetailsServiceImpl implements UserDetailsService {
-  UserRepository userRepository;
+  UserCache userCache;
 
-  UserDetailsServiceImpl(UserRepository userRepository) {
-    this.userRepository = userRepository;
+  UserDetailsServiceImpl(UserCache userCache) {
+    this.userCache = userCache;
   }
 
   @Override
   @Transactional
   public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-    User user = userRepository.findByEmail(username)
+    User user = userCache.findByEmail(username)
         .orElseThrow(() -> new UsernameNotFoundException("User Not Found with email: " + username));
 
-    return UserDetailsImpl
-            .builder()
-            .id(user.getId())
-            .username(user.getEmail())
-            .lastName(user.getLastName())
-            .firstName(user.getFirstName())
-            .password(user.getPassword())
-            .build();
+    return UserDetailsImpl.build(user);
   }
 
 }
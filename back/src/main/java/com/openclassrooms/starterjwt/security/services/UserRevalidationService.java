@@ -0,0 +1,41 @@
+package com.openclassrooms.starterjwt.security.services;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.openclassrooms.starterjwt.services.UserCache;
+
+/**
+ * Tells whether the user behind a self-contained token still exists. The answer is
+ * re-checked against the database at most once per {@code oc.app.jwtRevalidationMs}
+ * for each user, so deleted accounts stop authenticating within that interval.
+ */
+@Service
+public class UserRevalidationService {
+  private final UserCache userCache;
+
+  private final Cache<Long, Boolean> knownUsers;
+
+  UserRevalidationService(UserCache userCache,
+      @Value("${oc.app.jwtRevalidationMs:300000}") long jwtRevalidationMs,
+      @Value("${oc.app.jwtCacheSize:10000}") int maximumSize) {
+    this.userCache = userCache;
+    this.knownUsers = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(Duration.ofMillis(jwtRevalidationMs))
+        .build();
+  }
+
+  public boolean isStillActive(Long userId) {
+    Boolean active = knownUsers.get(userId, id -> userCache.findById(id).isPresent());
+    return Boolean.TRUE.equals(active);
+  }
+
+  public void invalidate(Long userId) {
+    knownUsers.invalidate(userId);
+  }
+}
@@ -0,0 +1,180 @@
+package com.openclassrooms.starterjwt.services;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Append-only journal of the bookings acknowledged by {@link BookingLedger} and not yet written to
+ * the database. Records go to the current segment; {@link #rotate()} closes it so that it can be
+ * flushed then deleted. Segments left over by a crash are picked up again on the next start.
+ * <p>
+ * With {@code sync}, appends are group-committed: the records are written under a short lock and a
+ * single {@code force} covers every record written before it, so concurrent bookings of any session
+ * share an fsync instead of queuing for one each.
+ */
+final class BookingJournal implements Closeable {
+    private static final String PREFIX = "bookings-";
+
+    private static final String SUFFIX = ".log";
+
+    private static final int RECORD_BYTES = 2 * Long.BYTES;
+
+    private final Path directory;
+
+    private final boolean sync;
+
+    private final List<Path> closedSegments = new ArrayList<>();
+
+    // Taken before the journal's own lock when both are needed
+    private final Object syncLock = new Object();
+
+    private long sequence;
+
+    private FileChannel current;
+
+    private boolean dirty;
+
+    // Records appended so far; guarded by this
+    private long appended;
+
+    // Records known to be on disk; guarded by syncLock
+    private long synced;
+
+    BookingJournal(Path directory, boolean sync) throws IOException {
+        this.directory = directory;
+        this.sync = sync;
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            this.closedSegments.addAll(files
+                    .filter(file -> file.getFileName().toString().startsWith(PREFIX))
+                    .sorted(Comparator.comparingLong(BookingJournal::sequenceOf))
+                    .collect(Collectors.toList()));
+        }
+        this.sequence = this.closedSegments.isEmpty() ? 0 : sequenceOf(this.closedSegments.get(this.closedSegments.size() - 1));
+        open();
+    }
+
+    /**
+     * Records a booking; with {@code sync} it is on disk when this returns.
+     */
+    void append(long sessionId, long userId) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES).putLong(sessionId).putLong(userId);
+        record.flip();
+        long position;
+        synchronized (this) {
+            while (record.hasRemaining()) {
+                this.current.write(record);
+            }
+            this.dirty = true;
+            position = ++this.appended;
+        }
+        if (this.sync) {
+            awaitSync(position);
+        }
+    }
+
+    /**
+     * Closes the current segment if it holds records and returns every closed segment, oldest first.
+     */
+    List<Path> rotate() throws IOException {
+        synchronized (this.syncLock) {
+            synchronized (this) {
+                if (this.dirty) {
+                    forceCurrent();
+                    this.current.close();
+                    this.closedSegments.add(segment(this.sequence));
+                    open();
+                }
+                return new ArrayList<>(this.closedSegments);
+            }
+        }
+    }
+
+    synchronized void delete(Path segment) throws IOException {
+        Files.deleteIfExists(segment);
+        this.closedSegments.remove(segment);
+    }
+
+    /**
+     * Reads the {@code [sessionId, userId]} records of a closed segment.
+     */
+    static List<long[]> read(Path segment) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(segment));
+        List<long[]> records = new ArrayList<>(bytes.remaining() / RECORD_BYTES);
+        // A torn record at the end was never acknowledged
+        while (bytes.remaining() >= RECORD_BYTES) {
+            records.add(new long[] {bytes.getLong(), bytes.getLong()});
+        }
+        return records;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this.syncLock) {
+            synchronized (this) {
+                if (this.dirty) {
+                    forceCurrent();
+                }
+                this.current.close();
+                if (!this.dirty) {
+                    Files.deleteIfExists(segment(this.sequence));
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits until the record at {@code position} is on disk. The first waiter forces everything
+     * appended so far; those queued behind it find their record already covered.
+     */
+    private void awaitSync(long position) throws IOException {
+        synchronized (this.syncLock) {
+            if (this.synced >= position) {
+                return;
+            }
+            long target;
+            FileChannel channel;
+            synchronized (this) {
+                target = this.appended;
+                channel = this.current;
+            }
+            // Appends keep going during the force; rotate() waits for it before closing the channel
+            channel.force(false);
+            this.synced = target;
+        }
+    }
+
+    // Called with both locks held
+    private void forceCurrent() throws IOException {
+        if (this.sync) {
+            this.current.force(false);
+            this.synced = this.appended;
+        }
+    }
+
+    private void open() throws IOException {
+        this.sequence++;
+        this.current = FileChannel.open(segment(this.sequence),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.dirty = false;
+    }
+
+    private Path segment(long sequence) {
+        return this.directory.resolve(PREFIX + sequence + SUFFIX);
+    }
+
+    private static long sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+}
@@ -0,0 +1,328 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.exception.NotFoundException;
+import com.openclassrooms.starterjwt.exception.ServiceUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Write-behind booking path, enabled with {@code oc.app.bookingMode=ledger}. Bookings are checked
+ * against an in-memory view of each session (participants and taken seats, one lock per session),
+ * recorded in a local {@link BookingJournal} and acknowledged; {@link #flush()} then writes them to
+ * PARTICIPATE in JDBC batches. The view assumes this instance is the only one taking seats.
+ */
+@Service
+public class BookingLedger {
+    public enum Result {
+        BOOKED,
+        DUPLICATE,
+        FULL,
+        UNCLAIMED
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingLedger.class);
+
+    // Replaying a segment after a crash must not book anyone twice
+    private static final String INSERT_PARTICIPANT = "insert into PARTICIPATE (session_id, user_id) select ?, ? from DUAL"
+            + " where not exists (select 1 from PARTICIPATE where session_id = ? and user_id = ?)";
+
+    private static final String ADD_SEATS = "update SESSIONS set seats_taken = seats_taken + ? where id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ResourceVersions resourceVersions;
+
+    private final SessionEvents sessionEvents;
+
+    private final BookingJournal journal;
+
+    private final int batchSize;
+
+    private final Map<Long, Stripe> stripes = new ConcurrentHashMap<>();
+
+    BookingLedger(JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ResourceVersions resourceVersions,
+            SessionEvents sessionEvents,
+            @Value("${oc.app.bookingMode:sync}") String mode,
+            @Value("${oc.app.bookingJournalDir:booking-journal}") String journalDir,
+            @Value("${oc.app.bookingJournalSync:true}") boolean journalSync,
+            @Value("${oc.app.bookingFlushBatchSize:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        // Never joins the caller's transaction: a flush commits on its own
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.resourceVersions = resourceVersions;
+        this.sessionEvents = sessionEvents;
+        this.journal = "ledger".equalsIgnoreCase(mode) ? openJournal(Paths.get(journalDir), journalSync) : null;
+        this.batchSize = batchSize;
+        if (isEnabled()) {
+            recover();
+        }
+    }
+
+    public boolean isEnabled() {
+        return this.journal != null;
+    }
+
+    public Result book(Long sessionId, Long userId) {
+        return book(sessionId, userId, () -> true);
+    }
+
+    /**
+     * Books a seat if the session has one left and the user is not booked yet. {@code claim} runs
+     * once the seat is known to be free and before anything is recorded; returning {@code false}
+     * gives up the booking.
+     */
+    public Result book(Long sessionId, Long userId, BooleanSupplier claim) {
+        Stripe stripe = stripe(sessionId);
+        synchronized (stripe) {
+            if (stripe.participants.contains(userId)) {
+                return Result.DUPLICATE;
+            }
+            if (stripe.capacity != null && stripe.seatsTaken >= stripe.capacity) {
+                return Result.FULL;
+            }
+            if (!claim.getAsBoolean()) {
+                return Result.UNCLAIMED;
+            }
+            try {
+                this.journal.append(sessionId, userId);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            stripe.participants.add(userId);
+            stripe.seatsTaken++;
+            return Result.BOOKED;
+        }
+    }
+
+    /**
+     * Writes the booking of the user, if it is still pending, so that it can be removed from the database.
+     * It waits for the flush and opens a connection of its own, so it must not be called inside a
+     * transaction; fails with a {@link ServiceUnavailableException} when the booking cannot be written.
+     */
+    public void flushBooking(Long sessionId, Long userId) {
+        Stripe stripe = this.stripes.get(sessionId);
+        if (stripe == null) {
+            return;
+        }
+        boolean booked;
+        synchronized (stripe) {
+            booked = stripe.participants.contains(userId);
+        }
+        if (!booked) {
+            return;
+        }
+        try {
+            writeJournal();
+        } catch (IOException | DataAccessException | TransactionException e) {
+            logger.warn("Cannot flush the booking of user {} on session {}: {}", userId, sessionId, e.getMessage());
+            throw new ServiceUnavailableException(1);
+        }
+    }
+
+    /**
+     * Gives back the seat of a participant removed from the database.
+     */
+    public void release(Long sessionId, Long userId) {
+        Stripe stripe = this.stripes.get(sessionId);
+        if (stripe == null) {
+            return;
+        }
+        synchronized (stripe) {
+            if (stripe.participants.remove(userId)) {
+                stripe.seatsTaken--;
+            }
+        }
+    }
+
+    public void updateCapacity(Long sessionId, Integer capacity) {
+        Stripe stripe = this.stripes.get(sessionId);
+        if (stripe == null) {
+            return;
+        }
+        synchronized (stripe) {
+            stripe.capacity = capacity;
+        }
+    }
+
+    public void evict(Long sessionId) {
+        this.stripes.remove(sessionId);
+    }
+
+    /**
+     * Writes every closed journal segment to the database, oldest first, and returns the number of
+     * participants inserted. A segment is deleted only once its transaction has committed.
+     */
+    @Scheduled(fixedDelayString = "${oc.app.bookingFlushMs:100}")
+    public synchronized int flush() {
+        if (!isEnabled()) {
+            return 0;
+        }
+        try {
+            return writeJournal();
+        } catch (IOException e) {
+            logger.error("Cannot read the booking journal", e);
+        } catch (DataAccessException | TransactionException e) {
+            // Segments stay on disk, the next flush retries them
+            logger.warn("Cannot flush bookings: {}", e.getMessage());
+        }
+        return 0;
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        if (isEnabled()) {
+            flush();
+            this.journal.close();
+        }
+    }
+
+    private Stripe stripe(Long sessionId) {
+        Stripe stripe = this.stripes.get(sessionId);
+        if (stripe != null) {
+            return stripe;
+        }
+        // Pending bookings all belong to loaded sessions: those of a previous run were written by recover()
+        return this.stripes.computeIfAbsent(sessionId, this::load);
+    }
+
+    /**
+     * Writes the bookings left over by a previous run before any session is read from the database,
+     * so that booking never has to flush from inside a request transaction.
+     */
+    private void recover() {
+        try {
+            int written = writeJournal();
+            if (written > 0) {
+                logger.info("Recovered {} bookings from the journal", written);
+            }
+        } catch (IOException | DataAccessException | TransactionException e) {
+            throw new IllegalStateException("Cannot write the bookings left in the journal", e);
+        }
+    }
+
+    private synchronized int writeJournal() throws IOException {
+        int written = 0;
+        for (Path segment : this.journal.rotate()) {
+            written += write(BookingJournal.read(segment));
+            this.journal.delete(segment);
+        }
+        return written;
+    }
+
+    private Stripe load(Long sessionId) {
+        Stripe stripe;
+        try {
+            stripe = this.jdbcTemplate.queryForObject("select capacity, seats_taken from SESSIONS where id = ?",
+                    (rs, row) -> new Stripe((Integer) rs.getObject("capacity"), rs.getInt("seats_taken")), sessionId);
+        } catch (EmptyResultDataAccessException e) {
+            throw new NotFoundException();
+        }
+        stripe.participants.addAll(this.jdbcTemplate.queryForList(
+                "select user_id from PARTICIPATE where session_id = ?", Long.class, sessionId));
+        return stripe;
+    }
+
+    private int write(List<long[]> bookings) {
+        if (bookings.isEmpty()) {
+            return 0;
+        }
+        try {
+            return this.transactionTemplate.execute(status -> insert(bookings));
+        } catch (DataIntegrityViolationException e) {
+            // A session or a user was deleted in the meantime: write row by row and drop those
+            int written = 0;
+            for (long[] booking : bookings) {
+                try {
+                    written += this.transactionTemplate.execute(status -> insert(Collections.singletonList(booking)));
+                } catch (DataIntegrityViolationException dropped) {
+                    logger.warn("Dropping booking of user {} on session {}: {}", booking[1], booking[0], dropped.getMessage());
+                    release(booking[0], booking[1]);
+                }
+            }
+            return written;
+        }
+    }
+
+    private int insert(List<long[]> bookings) {
+        int[][] counts = this.jdbcTemplate.batchUpdate(INSERT_PARTICIPANT, bookings, this.batchSize, (ps, booking) -> {
+            ps.setLong(1, booking[0]);
+            ps.setLong(2, booking[1]);
+            ps.setLong(3, booking[0]);
+            ps.setLong(4, booking[1]);
+        });
+
+        Map<Long, Integer> seats = new HashMap<>();
+        int written = 0;
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                long[] booking = bookings.get(index++);
+                if (count != 0) {
+                    seats.merge(booking[0], 1, Integer::sum);
+                    this.sessionEvents.participantAdded(booking[0], booking[1]);
+                    written++;
+                }
+            }
+        }
+
+        this.jdbcTemplate.batchUpdate(ADD_SEATS, new ArrayList<>(seats.entrySet()), this.batchSize, (ps, entry) -> {
+            ps.setInt(1, entry.getValue());
+            ps.setLong(2, entry.getKey());
+        });
+        // Runs inside the flush transaction, so the versions move and the events go once it has committed
+        seats.keySet().forEach(this.resourceVersions::sessionChanged);
+        return written;
+    }
+
+    private static BookingJournal openJournal(Path directory, boolean sync) {
+        try {
+            return new BookingJournal(directory, sync);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static final class Stripe {
+        private Integer capacity;
+
+        private int seatsTaken;
+
+        private final Set<Long> participants = new HashSet<>();
+
+        private Stripe(Integer capacity, int seatsTaken) {
+            this.capacity = capacity;
+            this.seatsTaken = seatsTaken;
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.openclassrooms.starterjwt.exception.ServiceUnavailableException;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Lottery booking for sessions flagged {@code lottery}. Requests made until
+ * {@code oc.app.lotteryWindowMs} after {@code bookingOpensAt} are only collected; once the window
+ * is closed, {@link #draw()} shuffles them and writes the winners to PARTICIPATE and the others to
+ * the waitlist, in rank order, in one transaction per session. Requesting again changes nothing,
+ * so clients have no reason to retry. Entries are held in memory by this instance.
+ */
+@Service
+public class BookingLottery {
+    private static final Logger logger = LoggerFactory.getLogger(BookingLottery.class);
+
+    private static final SecureRandom random = new SecureRandom();
+
+    private static final int USERS_PER_QUERY = 1000;
+
+    private static final String INSERT_PARTICIPANT = "insert into PARTICIPATE (session_id, user_id) select ?, ? from DUAL"
+            + " where not exists (select 1 from PARTICIPATE where session_id = ? and user_id = ?)";
+
+    private static final String INSERT_WAITLIST = "insert into WAITLIST (session_id, user_id) select ?, ? from DUAL"
+            + " where not exists (select 1 from WAITLIST where session_id = ? and user_id = ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final BookingLedger bookingLedger;
+
+    private final ResourceVersions resourceVersions;
+
+    private final SessionEvents sessionEvents;
+
+    private final LoadingCache<Long, Optional<Date>> openingTimes;
+
+    private final Map<Long, Draw> draws = new ConcurrentHashMap<>();
+
+    // Sessions whose draw is being allocated, no longer in draws but not committed yet
+    private final Set<Long> drawing = ConcurrentHashMap.newKeySet();
+
+    private final long windowMs;
+
+    private final int maxEntries;
+
+    private final LongSupplier clock;
+
+    private final LongAdder booked = new LongAdder();
+
+    private final LongAdder waitlisted = new LongAdder();
+
+    @Autowired
+    BookingLottery(JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            SessionRepository sessionRepository,
+            BookingLedger bookingLedger,
+            ResourceVersions resourceVersions,
+            SessionEvents sessionEvents,
+            MeterRegistry meterRegistry,
+            @Value("${oc.app.lotteryWindowMs:300000}") long windowMs,
+            @Value("${oc.app.lotteryMaxEntries:100000}") int maxEntries,
+            @Value("${oc.app.lotteryRefreshMs:1000}") long refreshMs) {
+        this(jdbcTemplate, transactionManager, sessionRepository, bookingLedger, resourceVersions, sessionEvents,
+                meterRegistry, windowMs, maxEntries, refreshMs, System::currentTimeMillis);
+    }
+
+    BookingLottery(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            SessionRepository sessionRepository, BookingLedger bookingLedger, ResourceVersions resourceVersions,
+            SessionEvents sessionEvents, MeterRegistry meterRegistry, long windowMs, int maxEntries, long refreshMs, LongSupplier clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.bookingLedger = bookingLedger;
+        this.resourceVersions = resourceVersions;
+        this.sessionEvents = sessionEvents;
+        this.openingTimes = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofMillis(refreshMs))
+                .build(sessionRepository::findLotteryOpensAtById);
+        this.windowMs = windowMs;
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+
+        Gauge.builder("lottery.entries", this.draws, BookingLottery::entries)
+                .register(meterRegistry);
+        FunctionCounter.builder("lottery.allocations", this.booked, LongAdder::sum)
+                .tag("result", "booked")
+                .register(meterRegistry);
+        FunctionCounter.builder("lottery.allocations", this.waitlisted, LongAdder::sum)
+                .tag("result", "waitlisted")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Enters the user in the draw of the session and returns the time of the draw, or
+     * {@code null} when the session is not drawn by lottery or its draw is over. Between the end
+     * of the window and the commit of the draw, requests fail with a
+     * {@link ServiceUnavailableException} so that no seat is booked before the entrants get theirs.
+     */
+    public Date enterIfOpen(Long sessionId, Long userId) {
+        Optional<Date> opensAt = this.openingTimes.get(sessionId);
+        if (opensAt.isEmpty()) {
+            return null;
+        }
+        long drawAt = opensAt.get().getTime() + this.windowMs;
+        if (this.clock.getAsLong() >= drawAt) {
+            // draw() marks the session as drawing before removing its draw, in this order nothing slips through
+            if (this.draws.containsKey(sessionId) || this.drawing.contains(sessionId)) {
+                throw new ServiceUnavailableException(1);
+            }
+            return null;
+        }
+
+        // Serialized per session, and draw() only reads the entrants once the draw is removed from the map
+        this.draws.compute(sessionId, (id, draw) -> {
+            Draw target = draw != null ? draw : new Draw(drawAt);
+            if (target.entrants.size() >= this.maxEntries && !target.entrants.contains(userId)) {
+                throw new ServiceUnavailableException(Math.max(1, (drawAt - this.clock.getAsLong()) / 1000));
+            }
+            target.entrants.add(userId);
+            return target;
+        });
+        return new Date(drawAt);
+    }
+
+    /**
+     * Allocates the seats of every session whose window is closed and returns the number of
+     * sessions drawn. A draw that fails is kept and retried on the next run.
+     */
+    @Scheduled(initialDelayString = "${oc.app.lotteryTickMs:1000}", fixedDelayString = "${oc.app.lotteryTickMs:1000}")
+    public synchronized int draw() {
+        long now = this.clock.getAsLong();
+        int drawn = 0;
+        for (Map.Entry<Long, Draw> entry : this.draws.entrySet()) {
+            Long sessionId = entry.getKey();
+            Draw draw = entry.getValue();
+            if (draw.drawAt > now) {
+                continue;
+            }
+            this.drawing.add(sessionId);
+            try {
+                if (!this.draws.remove(sessionId, draw)) {
+                    continue;
+                }
+                try {
+                    allocate(sessionId, draw.entrants);
+                    // Seats were taken behind the ledger's back
+                    this.bookingLedger.evict(sessionId);
+                    drawn++;
+                } catch (DataAccessException | TransactionException e) {
+                    logger.warn("Cannot draw session {}: {}", sessionId, e.getMessage());
+                    restore(sessionId, draw);
+                } catch (RuntimeException e) {
+                    // Drawing again is harmless: entrants already booked or waitlisted are skipped
+                    logger.error("Cannot draw session {}", sessionId, e);
+                    restore(sessionId, draw);
+                }
+            } finally {
+                this.drawing.remove(sessionId);
+            }
+        }
+        return drawn;
+    }
+
+    private void restore(Long sessionId, Draw draw) {
+        // An entry made meanwhile started a new draw, its entrants join the failed one
+        this.draws.merge(sessionId, draw, (current, failed) -> {
+            failed.entrants.addAll(current.entrants);
+            return failed;
+        });
+    }
+
+    private void allocate(Long sessionId, Set<Long> entrants) {
+        List<Long> ranked = new ArrayList<>(entrants);
+        Collections.shuffle(ranked, random);
+
+        this.transactionTemplate.executeWithoutResult(status -> {
+            // Locks the session row: no seat can be taken until the allocation is written
+            List<int[]> seats = this.jdbcTemplate.query("select capacity, seats_taken from SESSIONS where id = ? for update",
+                    (rs, row) -> new int[] {rs.getObject("capacity") == null ? -1 : rs.getInt("capacity"), rs.getInt("seats_taken")},
+                    sessionId);
+            if (seats.isEmpty()) {
+                return;
+            }
+
+            Set<Long> participants = new HashSet<>(this.jdbcTemplate.queryForList(
+                    "select user_id from PARTICIPATE where session_id = ?", Long.class, sessionId));
+            Set<Long> users = existingUsers(ranked);
+            List<Long> eligible = new ArrayList<>(ranked.size());
+            for (Long userId : ranked) {
+                if (users.contains(userId) && !participants.contains(userId)) {
+                    eligible.add(userId);
+                }
+            }
+
+            int capacity = seats.get(0)[0];
+            int free = capacity < 0 ? eligible.size() : Math.max(0, Math.min(eligible.size(), capacity - seats.get(0)[1]));
+            List<Long> winners = eligible.subList(0, free);
+            List<Long> others = eligible.subList(free, eligible.size());
+
+            int inserted = insert(INSERT_PARTICIPANT, sessionId, winners);
+            this.jdbcTemplate.update("update SESSIONS set seats_taken = seats_taken + ? where id = ?", inserted, sessionId);
+            // Inserted in rank order, so the waitlist promotes them in that order too
+            int queued = insert(INSERT_WAITLIST, sessionId, others);
+
+            this.booked.add(inserted);
+            this.waitlisted.add(queued);
+            if (inserted > 0) {
+                this.resourceVersions.sessionChanged(sessionId);
+                // The winners are not known one by one, the whole session is announced as changed
+                this.sessionEvents.updated(sessionId);
+            }
+        });
+    }
+
+    private int insert(String sql, Long sessionId, List<Long> userIds) {
+        int inserted = 0;
+        for (int[] batch : this.jdbcTemplate.batchUpdate(sql, userIds, USERS_PER_QUERY, (ps, userId) -> {
+            ps.setLong(1, sessionId);
+            ps.setLong(2, userId);
+            ps.setLong(3, sessionId);
+            ps.setLong(4, userId);
+        })) {
+            for (int count : batch) {
+                if (count != 0) {
+                    inserted++;
+                }
+            }
+        }
+        return inserted;
+    }
+
+    private Set<Long> existingUsers(List<Long> userIds) {
+        Set<Long> existing = new HashSet<>();
+        for (int from = 0; from < userIds.size(); from += USERS_PER_QUERY) {
+            List<Long> chunk = userIds.subList(from, Math.min(userIds.size(), from + USERS_PER_QUERY));
+            existing.addAll(this.namedJdbcTemplate.queryForList("select id from USERS where id in (:ids)",
+                    new MapSqlParameterSource("ids", chunk), Long.class));
+        }
+        return existing;
+    }
+
+    private static double entries(Map<Long, Draw> draws) {
+        return draws.values().stream().mapToInt(draw -> draw.entrants.size()).sum();
+    }
+
+    private static final class Draw {
+        private final long drawAt;
+
+        private final Set<Long> entrants = new HashSet<>();
+
+        private Draw(long drawAt) {
+            this.drawAt = drawAt;
+        }
+    }
+}
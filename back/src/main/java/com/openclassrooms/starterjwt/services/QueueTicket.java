@@ -0,0 +1,72 @@
+package com.openclassrooms.starterjwt.services;
+
+/**
+ * Place of a user in the {@link WaitingRoom} of a session. Once admitted, the ticket keeps the
+ * outcome of the booking so that polling clients can read it.
+ */
+public class QueueTicket {
+    public enum State {
+        QUEUED,
+        BOOKED,
+        WAITLISTED,
+        REJECTED
+    }
+
+    private final String id;
+
+    private final Long sessionId;
+
+    private final Long userId;
+
+    private final long sequence;
+
+    private volatile State state = State.QUEUED;
+
+    private volatile int status;
+
+    private volatile long completedAt;
+
+    QueueTicket(String id, Long sessionId, Long userId, long sequence) {
+        this.id = id;
+        this.sessionId = sessionId;
+        this.userId = userId;
+        this.sequence = sequence;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Long getSessionId() {
+        return sessionId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * HTTP status the booking would have had without the waiting room, {@code 0} while queued.
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    long getCompletedAt() {
+        return completedAt;
+    }
+
+    void complete(State state, int status, long completedAt) {
+        this.status = status;
+        this.completedAt = completedAt;
+        this.state = state;
+    }
+}
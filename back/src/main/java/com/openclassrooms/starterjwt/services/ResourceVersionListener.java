@@ -0,0 +1,31 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/**
+ * Bumps {@link ResourceVersions} on every entity write of a session or a teacher. Participant
+ * changes are native statements that bypass these callbacks, their services bump the version themselves.
+ */
+public class ResourceVersionListener {
+    private final ResourceVersions resourceVersions;
+
+    public ResourceVersionListener(ResourceVersions resourceVersions) {
+        this.resourceVersions = resourceVersions;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    void changed(Object entity) {
+        if (entity instanceof Session) {
+            this.resourceVersions.sessionChanged(((Session) entity).getId());
+        } else if (entity instanceof Teacher) {
+            this.resourceVersions.teachersChanged();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.openclassrooms.starterjwt.services;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version counters of the sessions and teachers, used as strong ETags so that an unchanged
+ * resource is answered with {@code 304 Not Modified} without querying the database.
+ * <p>
+ * A version is bumped once the transaction that changed the data has committed: a reader that
+ * reads the version before the data can only tag fresh data with an older version, which costs
+ * one extra full response but never serves stale data. Counters live in memory and assume this
+ * instance makes every write; the random epoch keeps tags from a previous run from matching.
+ */
+@Component
+public class ResourceVersions {
+    private final String epoch = Long.toString(new SecureRandom().nextLong() & Long.MAX_VALUE, 36);
+
+    private final AtomicLong sessions = new AtomicLong();
+
+    private final Map<Long, Long> sessionVersions = new ConcurrentHashMap<>();
+
+    private final AtomicLong teachers = new AtomicLong();
+
+    /**
+     * Records a change of the session, and so of the session list.
+     */
+    public void sessionChanged(Long sessionId) {
+        afterCommit(() -> {
+            long version = this.sessions.incrementAndGet();
+            if (sessionId != null) {
+                this.sessionVersions.merge(sessionId, version, Math::max);
+            }
+        });
+    }
+
+    public void teachersChanged() {
+        afterCommit(this.teachers::incrementAndGet);
+    }
+
+    public String sessionsTag() {
+        return tag(sessionsVersion());
+    }
+
+    public String sessionTag(Long sessionId) {
+        return tag(sessionVersion(sessionId));
+    }
+
+    public String teachersTag() {
+        return tag(this.teachers.get());
+    }
+
+    long sessionsVersion() {
+        return this.sessions.get();
+    }
+
+    long sessionVersion(Long sessionId) {
+        return this.sessionVersions.getOrDefault(sessionId, 0L);
+    }
+
+    private String tag(long version) {
+        return "\"" + this.epoch + "-" + version + "\"";
+    }
+
+    static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
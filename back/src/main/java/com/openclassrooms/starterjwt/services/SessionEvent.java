@@ -0,0 +1,45 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonValue;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Change of a session published by {@link SessionEvents}. It only names what changed, clients
+ * read the session again when they need its new content.
+ */
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class SessionEvent {
+    public enum Type {
+        CREATED("created"),
+        UPDATED("updated"),
+        DELETED("deleted"),
+        PARTICIPANT_ADDED("participant-added"),
+        PARTICIPANT_REMOVED("participant-removed");
+
+        private final String name;
+
+        Type(String name) {
+            this.name = name;
+        }
+
+        @JsonValue
+        public String getName() {
+            return name;
+        }
+    }
+
+    // Increasing sequence number, sent as the SSE event id
+    @JsonIgnore
+    private final long id;
+
+    private final Type type;
+
+    private final Long sessionId;
+
+    private final Long userId;
+}
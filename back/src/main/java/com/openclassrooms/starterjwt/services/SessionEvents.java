@@ -0,0 +1,65 @@
+package com.openclassrooms.starterjwt.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Publishes the changes of the sessions to the listeners in this instance. Like the
+ * {@link ResourceVersions} bumps, an event is only published once the transaction that made the
+ * change has committed, so a listener reading the session back sees the change.
+ */
+@Component
+public class SessionEvents {
+    private static final Logger logger = LoggerFactory.getLogger(SessionEvents.class);
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final List<Consumer<SessionEvent>> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Listeners are called on the thread that committed the change and must not block.
+     */
+    public void subscribe(Consumer<SessionEvent> listener) {
+        this.listeners.add(listener);
+    }
+
+    public void created(Long sessionId) {
+        publish(SessionEvent.Type.CREATED, sessionId, null);
+    }
+
+    public void updated(Long sessionId) {
+        publish(SessionEvent.Type.UPDATED, sessionId, null);
+    }
+
+    public void deleted(Long sessionId) {
+        publish(SessionEvent.Type.DELETED, sessionId, null);
+    }
+
+    public void participantAdded(Long sessionId, Long userId) {
+        publish(SessionEvent.Type.PARTICIPANT_ADDED, sessionId, userId);
+    }
+
+    public void participantRemoved(Long sessionId, Long userId) {
+        publish(SessionEvent.Type.PARTICIPANT_REMOVED, sessionId, userId);
+    }
+
+    private void publish(SessionEvent.Type type, Long sessionId, Long userId) {
+        ResourceVersions.afterCommit(() -> {
+            SessionEvent event = new SessionEvent(this.sequence.incrementAndGet(), type, sessionId, userId);
+            for (Consumer<SessionEvent> listener : this.listeners) {
+                // The change is committed whatever a listener does
+                try {
+                    listener.accept(event);
+                } catch (RuntimeException e) {
+                    logger.warn("Cannot publish the session event {}: {}", type, e.getMessage());
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,19 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.models.Session;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * One page of sessions ordered by date then id, with the cursor of the next page
+ * ({@code null} on the last page).
+ */
+@Getter
+@AllArgsConstructor
+public class SessionPage {
+    private final List<Session> sessions;
+
+    private final String nextCursor;
+}
@@ -1,15 +1,25 @@
 package com.openclassrooms.starterjwt.services;
 
 import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.ConflictException;
 import com.openclassrooms.starterjwt.exception.NotFoundException;
 import com.openclassrooms.starterjwt.models.Session;
-import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.models.WaitlistEntry;
 import com.openclassrooms.starterjwt.repository.SessionRepository;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 public class SessionService {
@@ -17,62 +27,217 @@ public class SessionService {
 
     private final UserRepository userRepository;
 
-    public SessionService(SessionRepository sessionRepository, UserRepository userRepository) {
+    private final WaitlistRepository waitlistRepository;
+
+    private final BookingLedger bookingLedger;
+
+    private final ResourceVersions resourceVersions;
+
+    private final SessionViewCache sessionViewCache;
+
+    private final SessionEvents sessionEvents;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public SessionService(SessionRepository sessionRepository, UserRepository userRepository,
+            WaitlistRepository waitlistRepository, BookingLedger bookingLedger, ResourceVersions resourceVersions,
+            SessionViewCache sessionViewCache, SessionEvents sessionEvents,
+            PlatformTransactionManager transactionManager) {
         this.sessionRepository = sessionRepository;
         this.userRepository = userRepository;
+        this.waitlistRepository = waitlistRepository;
+        this.bookingLedger = bookingLedger;
+        this.resourceVersions = resourceVersions;
+        this.sessionViewCache = sessionViewCache;
+        this.sessionEvents = sessionEvents;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
+    /**
+     * Creates the session without participants: like taken seats, they only change through
+     * {@link #participate(Long, Long)}, so the seat counter always matches them.
+     */
     public Session create(Session session) {
-        return this.sessionRepository.save(session);
+        session.setUserIds(new HashSet<>());
+        Session created = this.sessionRepository.save(session);
+        this.sessionViewCache.invalidate(created.getId());
+        this.sessionEvents.created(created.getId());
+        return created;
     }
 
     public void delete(Long id) {
         this.sessionRepository.deleteById(id);
+        this.bookingLedger.evict(id);
+        this.sessionViewCache.invalidate(id);
+        this.sessionEvents.deleted(id);
     }
 
     public List<Session> findAll() {
-        return this.sessionRepository.findAll();
+        return this.sessionRepository.findAllWithTeacherAndParticipants();
+    }
+
+    /**
+     * Returns up to {@code size} sessions following the given cursor, ordered by date then id.
+     * The cursor is opaque to clients; a {@code null} cursor starts from the first session.
+     */
+    public SessionPage findPage(String cursor, int size) {
+        PageRequest limit = PageRequest.of(0, size + 1);
+        List<Session> sessions;
+        if (cursor == null) {
+            sessions = this.sessionRepository.findFirstPage(limit);
+        } else {
+            long[] position = decodeCursor(cursor);
+            sessions = this.sessionRepository.findPageAfter(new Date(position[0]), position[1], limit);
+        }
+
+        // One extra row tells whether there is a next page without a count query
+        if (sessions.size() <= size) {
+            return new SessionPage(sessions, null);
+        }
+        List<Session> page = sessions.subList(0, size);
+        Session last = page.get(size - 1);
+        return new SessionPage(page, encodeCursor(last.getDate().getTime(), last.getId()));
     }
 
     public Session getById(Long id) {
-        return this.sessionRepository.findById(id).orElse(null);
+        return this.sessionRepository.findWithTeacherAndParticipantsById(id).orElse(null);
     }
 
+    /**
+     * Updates the session details. Participants and taken seats are left untouched, they only
+     * change through {@link #participate(Long, Long)} and {@link #noLongerParticipate(Long, Long)}.
+     */
+    @Transactional
     public Session update(Long id, Session session) {
-        session.setId(id);
-        return this.sessionRepository.save(session);
+        Session current = this.sessionRepository.findById(id).orElse(null);
+        if (current == null) {
+            throw new NotFoundException();
+        }
+
+        this.bookingLedger.updateCapacity(id, session.getCapacity());
+        this.sessionViewCache.invalidate(id);
+        this.sessionEvents.updated(id);
+        return current
+                .setName(session.getName())
+                .setDate(session.getDate())
+                .setDescription(session.getDescription())
+                .setTeacher(session.getTeacher())
+                .setCapacity(session.getCapacity())
+                .setBookingOpensAt(session.getBookingOpensAt())
+                .setLottery(session.isLottery());
     }
 
-    public void participate(Long id, Long userId) {
-        Session session = this.sessionRepository.findById(id).orElse(null);
-        User user = this.userRepository.findById(userId).orElse(null);
-        if (session == null || user == null) {
+    /**
+     * Books a seat: the seat counter is incremented only while below capacity, and the
+     * participant row is inserted in the same transaction so a duplicate booking gives the seat back.
+     * In ledger mode the seat is taken in {@link BookingLedger} and written later.
+     * When the session is full the user joins its waitlist instead, see {@link WaitlistPromotionWorker}.
+     * So does a user finding a free seat while others are waitlisted: the seat goes to the first of them.
+     */
+    @Transactional
+    public BookingStatus participate(Long id, Long userId) {
+        if (!this.userRepository.existsById(userId)) {
             throw new NotFoundException();
         }
 
-        boolean alreadyParticipate = session.getUsers().stream().anyMatch(o -> o.getId().equals(userId));
-        if(alreadyParticipate) {
-            throw new BadRequestException();
+        if (this.bookingLedger.isEnabled()) {
+            if (this.waitlistRepository.existsBySessionId(id)) {
+                return joinWaitlistUnlessBooked(id, userId);
+            }
+            switch (this.bookingLedger.book(id, userId)) {
+                case BOOKED:
+                    return BookingStatus.BOOKED;
+                case DUPLICATE:
+                    throw new BadRequestException();
+                default:
+                    return joinWaitlist(id, userId);
+            }
         }
 
-        session.getUsers().add(user);
+        if (this.sessionRepository.takeSeatAheadOfWaitlist(id) == 0) {
+            return joinWaitlistUnlessBooked(id, userId);
+        }
 
-        this.sessionRepository.save(session);
+        // The unique (session_id, user_id) index rejects a second booking of the same user
+        try {
+            this.sessionRepository.addParticipant(id, userId);
+        } catch (DataIntegrityViolationException e) {
+            throw new BadRequestException();
+        }
+        this.resourceVersions.sessionChanged(id);
+        this.sessionViewCache.invalidate(id);
+        this.sessionEvents.participantAdded(id, userId);
+        return BookingStatus.BOOKED;
     }
 
+    /**
+     * Frees the seat, or leaves the waitlist when the user was only queued. Waitlisted users are
+     * promoted later by {@link WaitlistPromotionWorker}, not here.
+     * <p>
+     * In ledger mode a booking still pending is written first, before the transaction opens: the
+     * flush needs a connection of its own and must not wait while this request holds one.
+     */
     public void noLongerParticipate(Long id, Long userId) {
-        Session session = this.sessionRepository.findById(id).orElse(null);
-        if (session == null) {
-            throw new NotFoundException();
+        if (this.bookingLedger.isEnabled()) {
+            this.bookingLedger.flushBooking(id, userId);
         }
 
-        boolean alreadyParticipate = session.getUsers().stream().anyMatch(o -> o.getId().equals(userId));
-        if(!alreadyParticipate) {
+        this.transactionTemplate.executeWithoutResult(status -> removeParticipant(id, userId));
+    }
+
+    private void removeParticipant(Long id, Long userId) {
+        if (this.sessionRepository.removeParticipant(id, userId) == 0) {
+            if (this.waitlistRepository.deleteBySessionIdAndUserId(id, userId) > 0) {
+                return;
+            }
+            if (!this.sessionRepository.existsById(id)) {
+                throw new NotFoundException();
+            }
+            throw new BadRequestException();
+        }
+
+        this.sessionRepository.releaseSeat(id);
+        this.bookingLedger.release(id, userId);
+        this.resourceVersions.sessionChanged(id);
+        this.sessionViewCache.invalidate(id);
+        this.sessionEvents.participantRemoved(id, userId);
+    }
+
+    private BookingStatus joinWaitlistUnlessBooked(Long id, Long userId) {
+        if (!this.sessionRepository.existsById(id)) {
+            throw new NotFoundException();
+        }
+        if (this.sessionRepository.countParticipant(id, userId) > 0) {
             throw new BadRequestException();
         }
+        return joinWaitlist(id, userId);
+    }
 
-        session.setUsers(session.getUsers().stream().filter(user -> !user.getId().equals(userId)).collect(Collectors.toList()));
+    private BookingStatus joinWaitlist(Long id, Long userId) {
+        // The unique (session_id, user_id) index rejects queueing twice
+        try {
+            this.waitlistRepository.save(WaitlistEntry.builder().sessionId(id).userId(userId).build());
+        } catch (DataIntegrityViolationException e) {
+            throw new ConflictException();
+        }
+        return BookingStatus.WAITLISTED;
+    }
 
-        this.sessionRepository.save(session);
+    static String encodeCursor(long date, long id) {
+        String position = date + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static long[] decodeCursor(String cursor) {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = position.indexOf(':');
+            return new long[] {
+                    Long.parseLong(position.substring(0, separator)),
+                    Long.parseLong(position.substring(separator + 1))
+            };
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new BadRequestException();
+        }
     }
 }
@@ -0,0 +1,175 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process cache of the mapped session views served by {@code GET /api/session} and
+ * {@code GET /api/session/{id}}. {@link SessionService} invalidates the entries it changes; each
+ * entry also keeps the {@link ResourceVersions} version it was loaded at and is ignored once that
+ * version moved, so a load racing with a write, or a write made elsewhere (waitlist promotion,
+ * ledger flush, lottery draw), never leaves a stale view behind. Concurrent misses of the same
+ * version run a single query, see {@link SingleFlight}.
+ */
+@Service
+public class SessionViewCache {
+    private static final String CACHE_NAME = "sessions";
+
+    private static final Boolean ALL = Boolean.TRUE;
+
+    private final SessionRepository sessionRepository;
+
+    private final SessionMapper sessionMapper;
+
+    private final ResourceVersions resourceVersions;
+
+    private final Cache<Long, View<SessionDto>> sessionsById;
+
+    private final Cache<Boolean, View<List<SessionDto>>> allSessions;
+
+    // Misses of the same version share one load, keyed by id and version
+    private final SingleFlight<String, SessionDto> sessionLoads;
+
+    private final SingleFlight<Long, List<SessionDto>> listLoads;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    public SessionViewCache(SessionRepository sessionRepository,
+                            SessionMapper sessionMapper,
+                            ResourceVersions resourceVersions,
+                            MeterRegistry meterRegistry,
+                            @Value("${oc.app.sessionCacheSize:10000}") int maximumSize,
+                            @Value("${oc.app.sessionCacheTtlMs:300000}") long ttlMs) {
+        this.sessionRepository = sessionRepository;
+        this.sessionMapper = sessionMapper;
+        this.resourceVersions = resourceVersions;
+        this.sessionsById = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .<Long, View<SessionDto>>evictionListener((id, view, cause) -> evictions.increment())
+                .build();
+        this.allSessions = Caffeine.newBuilder()
+                .maximumSize(1)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .<Boolean, View<List<SessionDto>>>evictionListener((key, view, cause) -> evictions.increment())
+                .build();
+        this.sessionLoads = new SingleFlight<>("session", meterRegistry);
+        this.listLoads = new SingleFlight<>("sessions", meterRegistry);
+
+        FunctionCounter.builder("cache.gets", hits, LongAdder::sum)
+                .tag("cache", CACHE_NAME).tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::sum)
+                .tag("cache", CACHE_NAME).tag("result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.evictions", evictions, LongAdder::sum)
+                .tag("cache", CACHE_NAME)
+                .register(meterRegistry);
+        Gauge.builder("cache.size", this, cache -> cache.sessionsById.estimatedSize() + cache.allSessions.estimatedSize())
+                .tag("cache", CACHE_NAME)
+                .register(meterRegistry);
+        Gauge.builder("cache.hit.ratio", this, SessionViewCache::getHitRatio)
+                .tag("cache", CACHE_NAME)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the view of the session, or {@code null} when it does not exist.
+     */
+    public SessionDto findById(Long id) {
+        long version = this.resourceVersions.sessionVersion(id);
+        View<SessionDto> view = this.sessionsById.getIfPresent(id);
+        if (view != null && view.version == version) {
+            this.hits.increment();
+            return view.value;
+        }
+
+        this.misses.increment();
+        return this.sessionLoads.load(id + "@" + version, () -> load(id, version));
+    }
+
+    public List<SessionDto> findAll() {
+        long version = this.resourceVersions.sessionsVersion();
+        View<List<SessionDto>> view = this.allSessions.getIfPresent(ALL);
+        if (view != null && view.version == version) {
+            this.hits.increment();
+            return view.value;
+        }
+
+        this.misses.increment();
+        return this.listLoads.load(version, () -> loadAll(version));
+    }
+
+    /**
+     * Drops the view of the session and the session list.
+     */
+    public void invalidate(Long id) {
+        this.sessionsById.invalidate(id);
+        this.allSessions.invalidate(ALL);
+    }
+
+    public void invalidateAll() {
+        this.sessionsById.invalidateAll();
+        this.allSessions.invalidateAll();
+    }
+
+    public long getHitCount() {
+        return this.hits.sum();
+    }
+
+    public long getMissCount() {
+        return this.misses.sum();
+    }
+
+    public double getHitRatio() {
+        long hitCount = getHitCount();
+        long total = hitCount + getMissCount();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    private SessionDto load(Long id, long version) {
+        Session session = this.sessionRepository.findWithTeacherAndParticipantsById(id).orElse(null);
+        if (session == null) {
+            return null;
+        }
+        SessionDto loaded = this.sessionMapper.toDto(session);
+        this.sessionsById.put(id, new View<>(version, loaded));
+        return loaded;
+    }
+
+    private List<SessionDto> loadAll(long version) {
+        List<SessionDto> loaded = Collections.unmodifiableList(
+                this.sessionMapper.toDto(this.sessionRepository.findAllWithTeacherAndParticipants()));
+        this.allSessions.put(ALL, new View<>(version, loaded));
+        return loaded;
+    }
+
+    private static final class View<T> {
+        private final long version;
+
+        private final T value;
+
+        private View(long version, T value) {
+            this.version = version;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.openclassrooms.starterjwt.services;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same key: the first caller runs the load and the callers
+ * arriving while it runs wait for it and share its result, or its exception.
+ * <p>
+ * A caller may get a result loaded slightly before it arrived, so keys of data that can change
+ * must include its version (see {@link ResourceVersions}) for a caller that saw a newer version
+ * to start its own load.
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder executed = new LongAdder();
+
+    private final LongAdder shared = new LongAdder();
+
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+        FunctionCounter.builder("singleflight.loads", executed, LongAdder::sum)
+                .tag("name", name).tag("result", "executed")
+                .register(meterRegistry);
+        FunctionCounter.builder("singleflight.loads", shared, LongAdder::sum)
+                .tag("name", name).tag("result", "deduplicated")
+                .register(meterRegistry);
+    }
+
+    public V load(K key, Supplier<V> loader) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> running = this.inFlight.putIfAbsent(key, call);
+        if (running != null) {
+            this.shared.increment();
+            return await(running);
+        }
+
+        this.executed.increment();
+        try {
+            V value = loader.get();
+            call.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            this.inFlight.remove(key, call);
+        }
+    }
+
+    public long getExecutedCount() {
+        return this.executed.sum();
+    }
+
+    public long getDeduplicatedCount() {
+        return this.shared.sum();
+    }
+
+    private static <V> V await(CompletableFuture<V> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+}
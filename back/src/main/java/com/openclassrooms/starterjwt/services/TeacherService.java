@@ -2,6 +2,7 @@ package com.openclassrooms.starterjwt.services;
 
 import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -10,12 +11,23 @@ import java.util.List;
 public class TeacherService {
     private final TeacherRepository teacherRepository;
 
-    public TeacherService(TeacherRepository teacherRepository) {
+    private final ResourceVersions resourceVersions;
+
+    private final SingleFlight<String, List<Teacher>> findAllLoads;
+
+    public TeacherService(TeacherRepository teacherRepository, ResourceVersions resourceVersions,
+            MeterRegistry meterRegistry) {
         this.teacherRepository = teacherRepository;
+        this.resourceVersions = resourceVersions;
+        this.findAllLoads = new SingleFlight<>("teachers", meterRegistry);
     }
 
+    /**
+     * Concurrent callers share one query. The key is the teachers version, so a caller that saw a
+     * teacher written never gets a list loaded before that write.
+     */
     public List<Teacher> findAll() {
-        return this.teacherRepository.findAll();
+        return this.findAllLoads.load(this.resourceVersions.teachersTag(), this.teacherRepository::findAll);
     }
 
     public Teacher findById(Long id) {
@@ -0,0 +1,128 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process user cache indexed by both id and email, so that the login, the JWT filter and
+ * {@code GET /api/user/{id}} reach the database at most once per user per TTL window.
+ */
+@Service
+public class UserCache {
+    private static final String CACHE_NAME = "users";
+
+    private final UserRepository userRepository;
+
+    private final Cache<Long, User> usersById;
+
+    private final ConcurrentMap<String, Long> idsByEmail = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    public UserCache(UserRepository userRepository,
+                     MeterRegistry meterRegistry,
+                     @Value("${oc.app.userCacheSize:10000}") int maximumSize,
+                     @Value("${oc.app.userCacheTtlMs:300000}") long ttlMs) {
+        this.userRepository = userRepository;
+        this.usersById = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .<Long, User>evictionListener((id, user, cause) -> {
+                    evictions.increment();
+                    if (user != null) {
+                        idsByEmail.remove(user.getEmail(), id);
+                    }
+                })
+                .build();
+
+        FunctionCounter.builder("cache.gets", hits, LongAdder::sum)
+                .tag("cache", CACHE_NAME).tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::sum)
+                .tag("cache", CACHE_NAME).tag("result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("cache.evictions", evictions, LongAdder::sum)
+                .tag("cache", CACHE_NAME)
+                .register(meterRegistry);
+        Gauge.builder("cache.size", usersById, Cache::estimatedSize)
+                .tag("cache", CACHE_NAME)
+                .register(meterRegistry);
+    }
+
+    public Optional<User> findById(Long id) {
+        User user = this.usersById.getIfPresent(id);
+        if (user != null) {
+            this.hits.increment();
+            return Optional.of(user);
+        }
+
+        this.misses.increment();
+        Optional<User> loaded = this.userRepository.findById(id);
+        loaded.ifPresent(this::put);
+        return loaded;
+    }
+
+    public Optional<User> findByEmail(String email) {
+        Long id = this.idsByEmail.get(email);
+        User user = id != null ? this.usersById.getIfPresent(id) : null;
+        if (user != null && user.getEmail().equals(email)) {
+            this.hits.increment();
+            return Optional.of(user);
+        }
+
+        this.misses.increment();
+        Optional<User> loaded = this.userRepository.findByEmail(email);
+        loaded.ifPresent(this::put);
+        return loaded;
+    }
+
+    public void invalidate(Long id) {
+        User user = this.usersById.getIfPresent(id);
+        this.usersById.invalidate(id);
+        if (user != null) {
+            this.idsByEmail.remove(user.getEmail(), id);
+        }
+    }
+
+    public void invalidateEmail(String email) {
+        Long id = this.idsByEmail.remove(email);
+        if (id != null) {
+            this.usersById.invalidate(id);
+        }
+    }
+
+    public void invalidateAll() {
+        this.usersById.invalidateAll();
+        this.idsByEmail.clear();
+    }
+
+    public long getHitCount() {
+        return this.hits.sum();
+    }
+
+    public long getMissCount() {
+        return this.misses.sum();
+    }
+
+    private void put(User user) {
+        this.usersById.put(user.getId(), user);
+        this.idsByEmail.put(user.getEmail(), user.getId());
+    }
+}
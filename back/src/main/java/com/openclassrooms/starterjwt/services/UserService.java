@@ -2,21 +2,38 @@ package com.openclassrooms.starterjwt.services;
 
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.services.RefreshTokenService;
+import com.openclassrooms.starterjwt.security.services.UserRevalidationService;
 import org.springframework.stereotype.Service;
 
 @Service
 public class UserService {
     private final UserRepository userRepository;
 
-    public UserService(UserRepository userRepository) {
+    private final UserCache userCache;
+
+    private final UserRevalidationService userRevalidationService;
+
+    private final RefreshTokenService refreshTokenService;
+
+    public UserService(UserRepository userRepository,
+                       UserCache userCache,
+                       UserRevalidationService userRevalidationService,
+                       RefreshTokenService refreshTokenService) {
         this.userRepository = userRepository;
+        this.userCache = userCache;
+        this.userRevalidationService = userRevalidationService;
+        this.refreshTokenService = refreshTokenService;
     }
 
     public void delete(Long id) {
+        this.refreshTokenService.revokeAll(id);
         this.userRepository.deleteById(id);
+        this.userCache.invalidate(id);
+        this.userRevalidationService.invalidate(id);
     }
 
     public User findById(Long id) {
-        return this.userRepository.findById(id).orElse(null);
+        return this.userCache.findById(id).orElse(null);
     }
 }
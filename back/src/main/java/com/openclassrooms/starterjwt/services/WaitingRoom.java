@@ -0,0 +1,275 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.ConflictException;
+import com.openclassrooms.starterjwt.exception.NotFoundException;
+import com.openclassrooms.starterjwt.exception.ServiceUnavailableException;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Admission queue in front of {@link SessionService#participate(Long, Long)} for sessions with a
+ * {@code bookingOpensAt}. Until {@code oc.app.waitingRoomWindowMs} after the opening, booking
+ * requests only get a {@link QueueTicket} and return at once; {@link #admit()} then books queued
+ * users in order, at most {@code oc.app.waitingRoomAdmissionsPerSecond} per second over all
+ * sessions. Queues are held in memory by this instance.
+ */
+@Service
+public class WaitingRoom {
+    private static final Logger logger = LoggerFactory.getLogger(WaitingRoom.class);
+
+    private final SessionService sessionService;
+
+    private final LoadingCache<Long, Optional<Date>> openingTimes;
+
+    private final Map<Long, Room> rooms = new ConcurrentHashMap<>();
+
+    private final Map<String, QueueTicket> tickets = new ConcurrentHashMap<>();
+
+    private final double admissionsPerSecond;
+
+    private final long windowMs;
+
+    private final int capacity;
+
+    private final long ticketTtlMs;
+
+    private final LongSupplier clock;
+
+    private final LongAdder admitted = new LongAdder();
+
+    private double budget;
+
+    private long lastRefill;
+
+    @Autowired
+    WaitingRoom(SessionService sessionService,
+            SessionRepository sessionRepository,
+            MeterRegistry meterRegistry,
+            @Value("${oc.app.waitingRoomAdmissionsPerSecond:50}") double admissionsPerSecond,
+            @Value("${oc.app.waitingRoomWindowMs:600000}") long windowMs,
+            @Value("${oc.app.waitingRoomCapacity:100000}") int capacity,
+            @Value("${oc.app.waitingRoomTicketTtlMs:600000}") long ticketTtlMs,
+            @Value("${oc.app.waitingRoomRefreshMs:1000}") long refreshMs) {
+        this(sessionService, sessionRepository, meterRegistry, admissionsPerSecond, windowMs, capacity, ticketTtlMs,
+                refreshMs, System::currentTimeMillis);
+    }
+
+    WaitingRoom(SessionService sessionService, SessionRepository sessionRepository, MeterRegistry meterRegistry,
+            double admissionsPerSecond, long windowMs, int capacity, long ticketTtlMs, long refreshMs,
+            LongSupplier clock) {
+        this.sessionService = sessionService;
+        // Read at most once per session and refresh period, however many clients arrive at once
+        this.openingTimes = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(Duration.ofMillis(refreshMs))
+                .build(sessionRepository::findBookingOpensAtById);
+        this.admissionsPerSecond = admissionsPerSecond;
+        this.windowMs = windowMs;
+        this.capacity = capacity;
+        this.ticketTtlMs = ticketTtlMs;
+        this.clock = clock;
+        this.lastRefill = clock.getAsLong();
+
+        Gauge.builder("waiting_room.queued", this.rooms, WaitingRoom::queued)
+                .register(meterRegistry);
+        FunctionCounter.builder("waiting_room.admissions", this.admitted, LongAdder::sum)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues the booking when the waiting room of the session is active and returns its ticket,
+     * or {@code null} when the booking can go straight to {@link SessionService}. A user queued
+     * twice gets the same ticket back while it is still queued, and a new one once it completed.
+     */
+    public QueueTicket enqueueIfActive(Long sessionId, Long userId) {
+        Room current = this.rooms.get(sessionId);
+        if ((current == null || current.queued.get() == 0) && !isActive(sessionId)) {
+            return null;
+        }
+
+        QueueTicket[] ticket = new QueueTicket[1];
+        // Serialized per session so that a room is never dropped while a ticket is added to it
+        this.rooms.compute(sessionId, (id, room) -> {
+            Room target = room != null ? room : new Room();
+            ticket[0] = target.byUser.get(userId);
+            // A completed ticket only keeps its outcome for polling, booking again needs a new one
+            if (ticket[0] == null || ticket[0].getState() != QueueTicket.State.QUEUED) {
+                if (target.queued.get() >= this.capacity) {
+                    throw new ServiceUnavailableException(retryAfterSeconds(target.queued.get()));
+                }
+                ticket[0] = new QueueTicket(UUID.randomUUID().toString(), sessionId, userId, ++target.issued);
+                target.byUser.put(userId, ticket[0]);
+                this.tickets.put(ticket[0].getId(), ticket[0]);
+                target.queued.incrementAndGet();
+                target.queue.add(ticket[0]);
+            }
+            return target;
+        });
+        return ticket[0];
+    }
+
+    public QueueTicket find(String ticketId) {
+        return this.tickets.get(ticketId);
+    }
+
+    /**
+     * Number of tickets ahead of this one, {@code 0} once it is admitted.
+     */
+    public long position(QueueTicket ticket) {
+        Room room = this.rooms.get(ticket.getSessionId());
+        if (room == null || ticket.getState() != QueueTicket.State.QUEUED) {
+            return 0;
+        }
+        return Math.max(0, ticket.getSequence() - room.taken - 1);
+    }
+
+    /**
+     * Seconds a client should wait before polling the ticket again.
+     */
+    public long retryAfterSeconds(QueueTicket ticket) {
+        long untilOpening = this.openingTimes.get(ticket.getSessionId())
+                .map(opensAt -> Math.max(0, opensAt.getTime() - this.clock.getAsLong()) / 1000)
+                .orElse(0L);
+        return untilOpening + retryAfterSeconds(position(ticket));
+    }
+
+    /**
+     * Books queued users of the sessions that are open, oldest first and taking turns between
+     * sessions, within the admission rate. Returns the number of users admitted.
+     */
+    @Scheduled(initialDelayString = "${oc.app.waitingRoomTickMs:100}", fixedDelayString = "${oc.app.waitingRoomTickMs:100}")
+    public synchronized int admit() {
+        long now = this.clock.getAsLong();
+        // Unused admissions are kept for one second at most
+        this.budget = Math.min(Math.max(this.admissionsPerSecond, 1),
+                this.budget + (now - this.lastRefill) * this.admissionsPerSecond / 1000);
+        this.lastRefill = now;
+        purge(now);
+
+        List<Room> open = new ArrayList<>();
+        for (Map.Entry<Long, Room> entry : this.rooms.entrySet()) {
+            Optional<Date> opensAt = this.openingTimes.get(entry.getKey());
+            if (entry.getValue().queued.get() > 0 && (opensAt.isEmpty() || opensAt.get().getTime() <= now)) {
+                open.add(entry.getValue());
+            }
+        }
+
+        int admittedNow = 0;
+        boolean progress = true;
+        while (this.budget >= 1 && progress) {
+            progress = false;
+            for (Room room : open) {
+                if (this.budget < 1) {
+                    break;
+                }
+                QueueTicket ticket = room.queue.poll();
+                if (ticket == null) {
+                    continue;
+                }
+                if (!book(ticket, now)) {
+                    // Database or ledger unavailable: keep the ticket first in line and retry on the next run
+                    room.queue.addFirst(ticket);
+                    return admittedNow;
+                }
+                room.queued.decrementAndGet();
+                room.taken = ticket.getSequence();
+                this.budget--;
+                this.admitted.increment();
+                admittedNow++;
+                progress = true;
+            }
+        }
+        return admittedNow;
+    }
+
+    private boolean book(QueueTicket ticket, long now) {
+        try {
+            BookingStatus status = this.sessionService.participate(ticket.getSessionId(), ticket.getUserId());
+            if (status == BookingStatus.WAITLISTED) {
+                ticket.complete(QueueTicket.State.WAITLISTED, 202, now);
+            } else {
+                ticket.complete(QueueTicket.State.BOOKED, 200, now);
+            }
+        } catch (NotFoundException e) {
+            ticket.complete(QueueTicket.State.REJECTED, 404, now);
+        } catch (BadRequestException e) {
+            ticket.complete(QueueTicket.State.REJECTED, 400, now);
+        } catch (ConflictException e) {
+            ticket.complete(QueueTicket.State.REJECTED, 409, now);
+        } catch (DataAccessException | TransactionException | ServiceUnavailableException e) {
+            logger.warn("Cannot admit queued booking: {}", e.getMessage());
+            return false;
+        } catch (RuntimeException e) {
+            // Completed all the same, a ticket left queued would block the user and count forever
+            logger.error("Cannot admit queued booking of user {} for session {}", ticket.getUserId(), ticket.getSessionId(), e);
+            ticket.complete(QueueTicket.State.REJECTED, 500, now);
+        }
+        return true;
+    }
+
+    private void purge(long now) {
+        for (QueueTicket ticket : this.tickets.values()) {
+            if (ticket.getState() != QueueTicket.State.QUEUED && now - ticket.getCompletedAt() > this.ticketTtlMs) {
+                this.tickets.remove(ticket.getId());
+                this.rooms.computeIfPresent(ticket.getSessionId(), (id, room) -> {
+                    room.byUser.remove(ticket.getUserId(), ticket);
+                    return room.byUser.isEmpty() ? null : room;
+                });
+            }
+        }
+    }
+
+    private boolean isActive(Long sessionId) {
+        return this.openingTimes.get(sessionId)
+                .map(opensAt -> this.clock.getAsLong() < opensAt.getTime() + this.windowMs)
+                .orElse(false);
+    }
+
+    private long retryAfterSeconds(long position) {
+        return Math.max(1, (long) Math.ceil(position / this.admissionsPerSecond));
+    }
+
+    private static double queued(Map<Long, Room> rooms) {
+        return rooms.values().stream().mapToInt(room -> room.queued.get()).sum();
+    }
+
+    private static final class Room {
+        private final Deque<QueueTicket> queue = new ConcurrentLinkedDeque<>();
+
+        private final Map<Long, QueueTicket> byUser = new ConcurrentHashMap<>();
+
+        private final AtomicInteger queued = new AtomicInteger();
+
+        // issued changes under the map lock of the session, taken in admit()
+        private long issued;
+
+        private volatile long taken;
+    }
+}
@@ -0,0 +1,70 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.models.WaitlistEntry;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Promotes waitlisted users in the background, oldest entries first, so unbooking never waits
+ * on the waitlist.
+ */
+@Component
+public class WaitlistPromotionWorker {
+    private static final Logger logger = LoggerFactory.getLogger(WaitlistPromotionWorker.class);
+
+    private final WaitlistRepository waitlistRepository;
+
+    private final WaitlistService waitlistService;
+
+    private final int batchSize;
+
+    WaitlistPromotionWorker(WaitlistRepository waitlistRepository,
+            WaitlistService waitlistService,
+            @Value("${oc.app.waitlistPromotionBatchSize:100}") int batchSize) {
+        this.waitlistRepository = waitlistRepository;
+        this.waitlistService = waitlistService;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Promotes up to one batch of entries and returns how many users got a seat.
+     */
+    @Scheduled(initialDelayString = "${oc.app.waitlistPromotionMs:1000}", fixedDelayString = "${oc.app.waitlistPromotionMs:1000}")
+    public int promoteWaitlisted() {
+        int promoted = 0;
+        try {
+            List<WaitlistEntry> entries = this.waitlistRepository.findPromotable(PageRequest.of(0, this.batchSize));
+            Set<Long> fullSessions = new HashSet<>();
+            for (WaitlistEntry entry : entries) {
+                if (fullSessions.contains(entry.getSessionId())) {
+                    continue;
+                }
+                switch (this.waitlistService.promote(entry)) {
+                    case PROMOTED:
+                        promoted++;
+                        break;
+                    case SESSION_FULL:
+                        fullSessions.add(entry.getSessionId());
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } catch (DataAccessException | TransactionException e) {
+            // Entries stay queued, the next run retries them
+            logger.warn("Cannot promote waitlisted users: {}", e.getMessage());
+        }
+        return promoted;
+    }
+}
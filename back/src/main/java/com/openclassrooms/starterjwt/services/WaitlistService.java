@@ -0,0 +1,84 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.models.WaitlistEntry;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Moves waitlisted users into the sessions they queued for. Each promotion runs in its own
+ * transaction and only succeeds if it deletes the entry, so an entry is promoted at most once
+ * even when several workers pick it up.
+ */
+@Service
+public class WaitlistService {
+    public enum Promotion {
+        PROMOTED,
+        SKIPPED,
+        SESSION_FULL
+    }
+
+    private final WaitlistRepository waitlistRepository;
+
+    private final SessionRepository sessionRepository;
+
+    private final BookingLedger bookingLedger;
+
+    private final ResourceVersions resourceVersions;
+
+    private final SessionEvents sessionEvents;
+
+    public WaitlistService(WaitlistRepository waitlistRepository, SessionRepository sessionRepository,
+            BookingLedger bookingLedger, ResourceVersions resourceVersions, SessionEvents sessionEvents) {
+        this.waitlistRepository = waitlistRepository;
+        this.sessionRepository = sessionRepository;
+        this.bookingLedger = bookingLedger;
+        this.resourceVersions = resourceVersions;
+        this.sessionEvents = sessionEvents;
+    }
+
+    /**
+     * The seat is taken first, like a regular booking, and handed back when the entry turns out
+     * to be already consumed.
+     */
+    @Transactional
+    public Promotion promote(WaitlistEntry entry) {
+        if (this.bookingLedger.isEnabled()) {
+            return promoteThroughLedger(entry);
+        }
+
+        if (this.sessionRepository.takeSeat(entry.getSessionId()) == 0) {
+            return Promotion.SESSION_FULL;
+        }
+
+        // Consumed by another worker, or booked on their own since they queued
+        if (this.waitlistRepository.deleteOne(entry.getId()) == 0
+                || this.sessionRepository.countParticipant(entry.getSessionId(), entry.getUserId()) > 0) {
+            this.sessionRepository.releaseSeat(entry.getSessionId());
+            return Promotion.SKIPPED;
+        }
+
+        this.sessionRepository.addParticipant(entry.getSessionId(), entry.getUserId());
+        this.resourceVersions.sessionChanged(entry.getSessionId());
+        this.sessionEvents.participantAdded(entry.getSessionId(), entry.getUserId());
+        return Promotion.PROMOTED;
+    }
+
+    private Promotion promoteThroughLedger(WaitlistEntry entry) {
+        // The entry is deleted only once the ledger has a seat for it
+        BookingLedger.Result result = this.bookingLedger.book(entry.getSessionId(), entry.getUserId(),
+                () -> this.waitlistRepository.deleteOne(entry.getId()) > 0);
+        switch (result) {
+            case BOOKED:
+                return Promotion.PROMOTED;
+            case FULL:
+                return Promotion.SESSION_FULL;
+            case DUPLICATE:
+                this.waitlistRepository.deleteOne(entry.getId());
+                return Promotion.SKIPPED;
+            default:
+                return Promotion.SKIPPED;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.openclassrooms.starterjwt;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Enregistre les requêtes SQL émises par Hibernate sur le thread courant.
+ * <p>
+ *     Déclaré dans {@code application-test.properties}; les tests d'intégration l'utilisent
+ *     pour vérifier le nombre de requêtes d'un appel MockMvc (exécuté sur le thread du test).
+ * </p>
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+	private static final ThreadLocal<List<String>> statements = ThreadLocal.withInitial(ArrayList::new);
+
+	@Override
+	public String inspect(String sql) {
+		statements.get().add(sql);
+		return sql;
+	}
+
+	public static void reset() {
+		statements.get().clear();
+	}
+
+	public static long selectCount() {
+		return statements.get().stream()
+				.filter(sql -> sql.trim().toLowerCase(Locale.ROOT).startsWith("select"))
+				.count();
+	}
+
+	public static List<String> statements() {
+		return new ArrayList<>(statements.get());
+	}
+}
@@ -1,10 +1,13 @@
 package com.openclassrooms.starterjwt.controllers;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.SqlStatementCounter;
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.payload.request.LoginRequest;
 import com.openclassrooms.starterjwt.payload.request.SignupRequest;
+import com.openclassrooms.starterjwt.payload.request.TokenRefreshRequest;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.services.UserCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -15,8 +18,11 @@ import org.springframework.http.MediaType;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -26,8 +32,12 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  *     Scénarios testés:
  *     <ul>
  *         <li>Authentification réussie d'un utilisateur existant</li>
+ *         <li>Authentification d'un administrateur en une seule requête SELECT</li>
  *         <li>Échec de l'authentification avec des identifiants incorrects</li>
  *         <li>Échec de l'authentification avec un format invalide</li>
+ *         <li>Rejet des tentatives répétées au-delà de la limite</li>
+ *         <li>Renouvellement du token avec rotation du refresh token</li>
+ *         <li>Échec du renouvellement avec un refresh token inconnu</li>
  *         <li>Inscription réussie d'un nouvel utilisateur</li>
  *         <li>Échec de l'inscription lorsque l'email est déjà utilisé</li>
  *         <li>Échec de l'inscription avec plusieurs champs vides</li>
@@ -45,6 +55,9 @@ public class AuthControllerTest {
 	@Autowired
 	private UserRepository userRepository;
 
+	@Autowired
+	private UserCache userCache;
+
 	@Autowired
 	private ObjectMapper objectMapper;
 
@@ -59,6 +72,7 @@ public class AuthControllerTest {
 
 	@BeforeEach
 	void setUp() {
+		userCache.invalidateAll();
 		userRepository.deleteAll(); // Nettoyage de la base avant chaque test
 		userRepository.save(user); // Enregistrement d'un utilisateur de test
 	}
@@ -78,6 +92,7 @@ public class AuthControllerTest {
 						.contentType(MediaType.APPLICATION_JSON))
 				.andExpect(status().isOk())
 				.andExpect(jsonPath("$.token").exists())
+				.andExpect(jsonPath("$.refreshToken").exists())
 				.andExpect(jsonPath("$.id").exists())
 				.andExpect(jsonPath("$.username").value("john.doe@example.com"))
 				.andExpect(jsonPath("$.firstName").value("john"))
@@ -85,6 +100,32 @@ public class AuthControllerTest {
 				.andExpect(jsonPath("$.admin").value(false));
 	}
 
+	@Test
+	@DisplayName("Authenticate an admin with a single SELECT") // Un seul chargement de l'utilisateur par connexion
+	void testAuthenticateUser_SingleSelect() throws Exception {
+		userRepository.save(User.builder()
+				.email("admin@example.com")
+				.firstName("chuck")
+				.lastName("norris")
+				.password(new BCryptPasswordEncoder().encode("password"))
+				.admin(true)
+				.build());
+		userCache.invalidateAll();
+
+		LoginRequest request = new LoginRequest();
+		request.setEmail("admin@example.com");
+		request.setPassword("password");
+
+		SqlStatementCounter.reset();
+		mockMvc.perform(post("/api/auth/login")
+						.content(objectMapper.writeValueAsString(request))
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.admin").value(true));
+
+		assertEquals(1, SqlStatementCounter.selectCount(), () -> SqlStatementCounter.statements().toString());
+	}
+
 	@Test
 	@DisplayName("Fail authentication with incorrect credentials") // Échec de l'authentification avec des identifiants incorrects
 	void testAuthenticateUser_InvalidCredentials() throws Exception {
@@ -117,6 +158,78 @@ public class AuthControllerTest {
 				.andExpect(status().isBadRequest());
 	}
 
+	@Test
+	@DisplayName("Throttle repeated failed authentications") // Rejet des tentatives répétées au-delà de la limite
+	void testAuthenticateUser_TooManyAttempts() throws Exception {
+		LoginRequest request = new LoginRequest();
+		request.setEmail("throttled@example.com");
+		request.setPassword("wrongpassword");
+
+		// Conversion en JSON
+		String jsonRequest = objectMapper.writeValueAsString(request);
+
+		// Chaque échec coûte plusieurs jetons : la capacité de l'email est vite épuisée
+		for (int i = 0; i < 2; i++) {
+			mockMvc.perform(post("/api/auth/login")
+							.content(jsonRequest)
+							.contentType(MediaType.APPLICATION_JSON))
+					.andExpect(status().isUnauthorized());
+		}
+
+		mockMvc.perform(post("/api/auth/login")
+						.content(jsonRequest)
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isTooManyRequests())
+				.andExpect(header().exists("Retry-After"));
+	}
+
+	@Test
+	@DisplayName("Refresh the access token and rotate the refresh token") // Renouvellement du token avec rotation du refresh token
+	void testRefreshToken_Success() throws Exception {
+		LoginRequest request = new LoginRequest();
+		request.setEmail("john.doe@example.com");
+		request.setPassword("password");
+
+		MvcResult login = mockMvc.perform(post("/api/auth/login")
+						.content(objectMapper.writeValueAsString(request))
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andReturn();
+
+		TokenRefreshRequest refreshRequest = new TokenRefreshRequest();
+		refreshRequest.setRefreshToken(objectMapper.readTree(login.getResponse().getContentAsString())
+				.get("refreshToken").asText());
+		String jsonRefreshRequest = objectMapper.writeValueAsString(refreshRequest);
+
+		mockMvc.perform(post("/api/auth/refresh")
+						.content(jsonRefreshRequest)
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.token").exists())
+				.andExpect(jsonPath("$.refreshToken").exists())
+				.andExpect(jsonPath("$.username").value("john.doe@example.com"))
+				.andExpect(jsonPath("$.admin").value(false));
+
+		// Un refresh token ne peut être échangé qu'une seule fois
+		mockMvc.perform(post("/api/auth/refresh")
+						.content(jsonRefreshRequest)
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isUnauthorized());
+	}
+
+	@Test
+	@DisplayName("Fail to refresh with an unknown refresh token") // Échec du renouvellement avec un refresh token inconnu
+	void testRefreshToken_Unknown() throws Exception {
+		TokenRefreshRequest refreshRequest = new TokenRefreshRequest();
+		refreshRequest.setRefreshToken("unknown-refresh-token");
+
+		mockMvc.perform(post("/api/auth/refresh")
+						.content(objectMapper.writeValueAsString(refreshRequest))
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isUnauthorized())
+				.andExpect(jsonPath("$.message").value("Error: Refresh token is invalid or expired"));
+	}
+
 	@Test
 	@DisplayName("Successful user registration") // Inscription réussie d'un nouvel utilisateur
 	void testRegisterUser_Success() throws Exception {
@@ -0,0 +1,165 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe de test unitaire pour {@link JsonResponseCache}.
+ * <p>
+ *     Scénarios testés :
+ *     <ul>
+ *         <li>Un corps déjà encodé pour une version est resservi sans recharger les données</li>
+ *         <li>Une nouvelle version recharge et réencode le corps</li>
+ *         <li>Corps compressé en gzip si le client l'accepte et au-delà du seuil</li>
+ *         <li>Corps non compressé sous le seuil</li>
+ *         <li>ETag propre au corps compressé, 304 pour l'ETag de l'un ou l'autre encodage</li>
+ *         <li>Lecture de l'en-tête If-None-Match</li>
+ *         <li>Lecture de l'en-tête Accept-Encoding</li>
+ *     </ul>
+ * </p>
+ */
+class JsonResponseCacheTest {
+
+	private JsonResponseCache jsonResponseCache;
+
+	private AtomicInteger loads;
+
+	private Supplier<List<String>> loader;
+
+	@BeforeEach
+	void setUp() {
+		jsonResponseCache = new JsonResponseCache(new ObjectMapper(), new SimpleMeterRegistry(), 64);
+		loads = new AtomicInteger();
+		loader = () -> {
+			loads.incrementAndGet();
+			return Collections.nCopies(20, "session");
+		};
+	}
+
+	@Test
+	@DisplayName("Should serve an encoded body again without loading the data")
+	void testRespond_SameVersion() {
+		ResponseEntity<byte[]> first = jsonResponseCache.respond("sessions", "\"a-1\"", loader, request(null));
+		ResponseEntity<byte[]> second = jsonResponseCache.respond("sessions", "\"a-1\"", loader, request(null));
+
+		assertEquals(1, loads.get());
+		assertSame(first.getBody(), second.getBody());
+		assertEquals(1, jsonResponseCache.getHitCount());
+		assertEquals(1, jsonResponseCache.getMissCount());
+	}
+
+	@Test
+	@DisplayName("Should encode the body again for a new version")
+	void testRespond_NewVersion() {
+		jsonResponseCache.respond("sessions", "\"a-1\"", loader, request(null));
+		jsonResponseCache.respond("sessions", "\"a-2\"", loader, request(null));
+		jsonResponseCache.respond("teachers", "\"a-2\"", loader, request(null));
+
+		assertEquals(3, loads.get());
+	}
+
+	@Test
+	@DisplayName("Should send the gzip body to clients that accept it")
+	void testRespond_Gzip() throws IOException {
+		ResponseEntity<byte[]> plain = jsonResponseCache.respond("sessions", "\"a-1\"", loader, request(null));
+		ResponseEntity<byte[]> compressed = jsonResponseCache.respond("sessions", "\"a-1\"", loader, request("gzip, deflate"));
+
+		assertNull(plain.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+		assertEquals("gzip", compressed.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+		assertEquals(compressed.getBody().length, compressed.getHeaders().getContentLength());
+		assertArrayEquals(plain.getBody(), gunzip(compressed.getBody()));
+		assertTrue(compressed.getHeaders().getVary().contains(HttpHeaders.ACCEPT_ENCODING));
+		assertEquals("\"a-1\"", plain.getHeaders().getETag());
+		assertEquals("\"a-1-gz\"", compressed.getHeaders().getETag());
+	}
+
+	@Test
+	@DisplayName("Should answer 304 to the tag of either encoding without loading the data")
+	void testRespond_NotModified() {
+		ResponseEntity<byte[]> plain = jsonResponseCache.respond("sessions", "\"a-1\"", loader, request(null, "\"a-1\""));
+		ResponseEntity<byte[]> compressed = jsonResponseCache.respond("sessions", "\"a-1\"", loader, request("gzip", "\"a-1-gz\""));
+
+		assertEquals(HttpStatus.NOT_MODIFIED, plain.getStatusCode());
+		assertEquals("\"a-1\"", plain.getHeaders().getETag());
+		assertEquals(HttpStatus.NOT_MODIFIED, compressed.getStatusCode());
+		assertEquals("\"a-1-gz\"", compressed.getHeaders().getETag());
+		assertEquals(0, loads.get());
+	}
+
+	@Test
+	@DisplayName("Should send the body when no tag matches the current version")
+	void testRespond_Modified() {
+		ResponseEntity<byte[]> response = jsonResponseCache.respond("sessions", "\"a-2\"", loader, request(null, "\"a-1-gz\""));
+
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	@DisplayName("Should read the If-None-Match header")
+	void testMatchingTag() {
+		assertEquals("\"a-1\"", JsonResponseCache.matchingTag("\"a-1\"", "\"a-1\"", "\"a-1-gz\""));
+		assertEquals("\"a-1-gz\"", JsonResponseCache.matchingTag("\"b-2\", W/\"a-1-gz\"", "\"a-1\"", "\"a-1-gz\""));
+		assertEquals("\"a-1\"", JsonResponseCache.matchingTag("*", "\"a-1\"", "\"a-1-gz\""));
+		assertNull(JsonResponseCache.matchingTag("\"a-2\"", "\"a-1\"", "\"a-1-gz\""));
+		assertNull(JsonResponseCache.matchingTag(null, "\"a-1\"", "\"a-1-gz\""));
+	}
+
+	@Test
+	@DisplayName("Should not compress bodies below the threshold")
+	void testRespond_SmallBody() {
+		ResponseEntity<byte[]> response = jsonResponseCache.respond("teachers", "\"a-1\"", Collections::emptyList, request("gzip"));
+
+		assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+		assertEquals("[]", new String(response.getBody()));
+	}
+
+	@Test
+	@DisplayName("Should read the Accept-Encoding header")
+	void testAcceptsGzip() {
+		assertTrue(JsonResponseCache.acceptsGzip("gzip"));
+		assertTrue(JsonResponseCache.acceptsGzip("deflate, GZIP;q=0.8"));
+		assertFalse(JsonResponseCache.acceptsGzip("gzip;q=0"));
+		assertFalse(JsonResponseCache.acceptsGzip("br, deflate"));
+		assertFalse(JsonResponseCache.acceptsGzip(null));
+	}
+
+	private static ServletWebRequest request(String acceptEncoding) {
+		return request(acceptEncoding, null);
+	}
+
+	private static ServletWebRequest request(String acceptEncoding, String ifNoneMatch) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/session");
+		if (acceptEncoding != null) {
+			request.addHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+		}
+		if (ifNoneMatch != null) {
+			request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+		}
+		return new ServletWebRequest(request);
+	}
+
+	private static byte[] gunzip(byte[] bytes) throws IOException {
+		try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+			return gzip.readAllBytes();
+		}
+	}
+}
@@ -0,0 +1,152 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.services.UserCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ *  Test de charge de la réservation de places via {@link SessionController}.
+ *<p>
+ *     Scénarios testés:
+ *     <ul>
+ *         <li>Milliers de réservations concurrentes sur deux sessions à capacité limitée : aucune surréservation,
+ *         les demandes en trop rejoignent la liste d'attente</li>
+ *     </ul>
+ *</p>
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class SessionBookingStressTest {
+
+	private static final Logger logger = LoggerFactory.getLogger(SessionBookingStressTest.class);
+
+	private static final int USERS = 1000;
+	private static final int CAPACITY = 50;
+	private static final int THREADS = 32;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private UserCache userCache;
+
+	@Autowired
+	private TeacherRepository teacherRepository;
+
+	@Autowired
+	private SessionRepository sessionRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private final List<Long> userIds = new ArrayList<>();
+	private final List<Long> sessionIds = new ArrayList<>();
+	private Teacher teacher;
+
+	@BeforeEach
+	void setUp() {
+		userCache.invalidateAll();
+
+		teacher = teacherRepository.save(Teacher.builder().firstName("Stress").lastName("Test").build());
+		for (int i = 0; i < 2; i++) {
+			sessionIds.add(sessionRepository.save(Session.builder()
+					.name("Rush " + i)
+					.description("Booking rush")
+					.date(new Date())
+					.teacher(teacher)
+					.capacity(CAPACITY)
+					.build()).getId());
+		}
+
+		// Insertion JDBC par lot, bien plus rapide que 1000 sauvegardes JPA
+		List<Object[]> users = new ArrayList<>();
+		for (int i = 0; i < USERS; i++) {
+			users.add(new Object[] {"rush" + i + "@example.com", "rush", String.valueOf(i), "password"});
+		}
+		jdbcTemplate.batchUpdate("insert into USERS (email, first_name, last_name, password, admin) values (?, ?, ?, ?, false)", users);
+		userIds.addAll(jdbcTemplate.queryForList("select id from USERS where email like 'rush%'", Long.class));
+	}
+
+	// Seules les données de ce test sont supprimées : les utilisateurs de data.sql servent aux autres classes
+	@AfterEach
+	void cleanUp() {
+		for (Long sessionId : sessionIds) {
+			jdbcTemplate.update("delete from PARTICIPATE where session_id = ?", sessionId);
+			jdbcTemplate.update("delete from WAITLIST where session_id = ?", sessionId);
+			sessionRepository.deleteById(sessionId);
+		}
+		jdbcTemplate.update("delete from USERS where email like 'rush%'");
+		teacherRepository.deleteById(teacher.getId());
+		userCache.invalidateAll();
+	}
+
+	@Test
+	@DisplayName("Concurrent bookings never exceed the session capacity")
+	void testConcurrentBookings_NoOverbooking() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		Map<Integer, Integer> statuses = new ConcurrentHashMap<>();
+		List<Callable<Void>> bookings = new ArrayList<>();
+		for (Long userId : userIds) {
+			for (Long sessionId : sessionIds) {
+				bookings.add(() -> {
+					int status = mockMvc.perform(post("/api/session/{id}/participate/{userId}", sessionId, userId)
+									.with(user("stress")))
+							.andReturn().getResponse().getStatus();
+					statuses.merge(status, 1, Integer::sum);
+					return null;
+				});
+			}
+		}
+
+		long start = System.nanoTime();
+		for (Future<Void> booking : executor.invokeAll(bookings)) {
+			booking.get();
+		}
+		long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		executor.shutdown();
+
+		logger.info("{} concurrent bookings in {} ms ({} req/s), statuses {}", bookings.size(), elapsedMs,
+				bookings.size() * 1000L / Math.max(elapsedMs, 1), statuses);
+
+		assertEquals(2 * CAPACITY, statuses.getOrDefault(200, 0));
+		assertEquals(bookings.size() - 2 * CAPACITY, statuses.getOrDefault(202, 0));
+		for (Long sessionId : sessionIds) {
+			Integer participants = jdbcTemplate.queryForObject(
+					"select count(*) from PARTICIPATE where session_id = ?", Integer.class, sessionId);
+			Integer seatsTaken = jdbcTemplate.queryForObject(
+					"select seats_taken from SESSIONS where id = ?", Integer.class, sessionId);
+			Integer waitlisted = jdbcTemplate.queryForObject(
+					"select count(*) from WAITLIST where session_id = ?", Integer.class, sessionId);
+			assertEquals(CAPACITY, participants);
+			assertEquals(USERS - CAPACITY, waitlisted);
+			assertEquals(CAPACITY, seatsTaken);
+		}
+		assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+	}
+}
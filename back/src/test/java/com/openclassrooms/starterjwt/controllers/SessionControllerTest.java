@@ -1,10 +1,17 @@
 package com.openclassrooms.starterjwt.controllers;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.SqlStatementCounter;
 import com.openclassrooms.starterjwt.dto.SessionDto;
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.Teacher;
@@ -12,6 +19,10 @@ import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.SessionRepository;
 import com.openclassrooms.starterjwt.repository.TeacherRepository;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.services.SessionViewCache;
+import com.openclassrooms.starterjwt.services.UserCache;
+import com.openclassrooms.starterjwt.services.WaitingRoom;
+import com.openclassrooms.starterjwt.services.WaitlistPromotionWorker;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -19,15 +30,20 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 
 /**
  *  Classe de test d'intégration pour le contrôleur {@link SessionController}.
@@ -37,6 +53,8 @@ import java.util.Date;
  *         <li>Récupération d'une session par ID - succès</li>
  *         <li>Récupération d'une session par ID - échec (non trouvée)</li>
  *         <li>Récupétation de toutes les sessions - succès</li>
+ *         <li>Récupération paginée des sessions avec curseur - succès</li>
+ *         <li>Récupération paginée des sessions - échec (curseur ou taille invalide)</li>
  *         <li>Création d'une session - succès</li>
  *         <li>Création d'une session - échec (requête invalide)</li>
  *         <li>Mise à jour d'une session - succès</li>
@@ -46,7 +64,17 @@ import java.util.Date;
  *         <li>Suppression d'une session - échec (format invalide)</li>
  *         <li>Participation à une session - succès</li>
  *         <li>Participation à une session - échec (format invalide)</li>
+ *         <li>Participation à une session - échec (déjà inscrit)</li>
  *         <li>Annulation de la participation à une session - succès</li>
+ *         <li>Session complète : liste d'attente puis promotion en arrière-plan après une désinscription</li>
+ *         <li>Place libérée : un nouvel arrivant passe derrière la liste d'attente</li>
+ *         <li>Ouverture programmée : ticket de file d'attente, suivi du ticket puis admission</li>
+ *         <li>Suivi d'un ticket inconnu</li>
+ *         <li>Session tirée au sort : demande enregistrée jusqu'au tirage</li>
+ *         <li>Nombre de requêtes SQL des lectures indépendant du nombre de sessions</li>
+ *         <li>Lecture conditionnelle : 304 sans requête SQL tant que la session n'a pas changé</li>
+ *         <li>Lecture conditionnelle : nouvel ETag après une participation</li>
+ *         <li>Flux des changements : événement envoyé après une participation</li>
  *     </ul>
  *</p>
  */
@@ -61,6 +89,9 @@ public class SessionControllerTest {
 	@Autowired
 	private UserRepository userRepository;
 
+	@Autowired
+	private UserCache userCache;
+
 	@Autowired
 	private TeacherRepository teacherRepository;
 
@@ -70,6 +101,15 @@ public class SessionControllerTest {
 	@Autowired
 	private ObjectMapper objectMapper;
 
+	@Autowired
+	private WaitlistPromotionWorker waitlistPromotionWorker;
+
+	@Autowired
+	private WaitingRoom waitingRoom;
+
+	@Autowired
+	private SessionViewCache sessionViewCache;
+
 	// Création d'un utilisateur de test
 	private final User user = User.builder()
 			.email("john.doe@example.com")
@@ -108,6 +148,7 @@ public class SessionControllerTest {
 
 	@BeforeEach
 	void setUp() {
+		userCache.invalidateAll();
 		userRepository.deleteAll();
 		teacherRepository.deleteAll();
 		sessionRepository.deleteAll();
@@ -168,6 +209,36 @@ public class SessionControllerTest {
 				.andExpect(jsonPath("$[1].name").value(sessionTwo.getName()));
 	}
 
+	@Test
+	@DisplayName("Successful find sessions page by page")
+	@WithMockUser // Sumulation d'un utilisateur authentifié
+	void testFindPage_Success() throws Exception {
+		MvcResult firstPage = mockMvc.perform(get("/api/session/page").param("size", "1"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.items.length()").value(1))
+				.andExpect(jsonPath("$.items[0].name").value(sessionOne.getName()))
+				.andExpect(jsonPath("$.nextCursor").isNotEmpty())
+				.andReturn();
+		String cursor = objectMapper.readTree(firstPage.getResponse().getContentAsString()).get("nextCursor").asText();
+
+		mockMvc.perform(get("/api/session/page").param("size", "1").param("cursor", cursor))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.items.length()").value(1))
+				.andExpect(jsonPath("$.items[0].name").value(sessionTwo.getName()))
+				.andExpect(jsonPath("$.nextCursor").isEmpty());
+	}
+
+	@Test
+	@DisplayName("Fail to find sessions page - Invalid cursor or size")
+	@WithMockUser // Sumulation d'un utilisateur authentifié
+	void testFindPage_BadRequest() throws Exception {
+		mockMvc.perform(get("/api/session/page").param("cursor", "not-a-cursor"))
+				.andExpect(status().isBadRequest());
+
+		mockMvc.perform(get("/api/session/page").param("size", "0"))
+				.andExpect(status().isBadRequest());
+	}
+
 	@Test
 	@DisplayName("Successful create session")
 	@WithMockUser // Sumulation d'un utilisateur authentifié
@@ -181,6 +252,9 @@ public class SessionControllerTest {
 				.atZone(ZoneId.systemDefault())
 				.toInstant()));
 
+		// Les participants ne sont ajoutés que par une inscription
+		newSessionDto.setUsers(Collections.singletonList(user.getId()));
+
 		String jsonRequest = objectMapper.writeValueAsString(newSessionDto);
 		mockMvc.perform(post("/api/session")
 						.contentType(MediaType.APPLICATION_JSON)
@@ -324,6 +398,24 @@ public class SessionControllerTest {
 				.andExpect(status().isBadRequest());
 	}
 
+	@Test
+	@DisplayName("Fail to participate in session - Already participating")
+	@WithMockUser // Sumulation d'un utilisateur authentifié
+	void testParticipate_AlreadyParticipating() throws Exception {
+		Long sessionId = sessionOne.getId();
+		Long userId = user.getId();
+
+		mockMvc.perform(post("/api/session/{sessionId}/participate/{userId}", sessionId, userId))
+				.andExpect(status().isOk());
+
+		mockMvc.perform(post("/api/session/{sessionId}/participate/{userId}", sessionId, userId))
+				.andExpect(status().isBadRequest());
+
+		mockMvc.perform(get("/api/session/{sessionId}", sessionId))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.users.length()").value(1));
+	}
+
 	@Test
 	@DisplayName("Successful cancel participation in session")
 	@WithMockUser // Sumulation d'un utilisateur authentifié
@@ -349,4 +441,282 @@ public class SessionControllerTest {
 				.andExpect(jsonPath("$.users").isArray())
 				.andExpect(jsonPath("$.users").isEmpty());
 	}
+
+	@Test
+	@DisplayName("Full session queues users and promotes them once a seat frees up")
+	@WithMockUser // Sumulation d'un utilisateur authentifié
+	void testParticipate_WaitlistPromotion() throws Exception {
+		Session full = sessionRepository.save(Session.builder()
+				.name("Full session")
+				.description("Only one seat")
+				.teacher(teacher)
+				.date(new Date())
+				.capacity(1)
+				.build());
+		User waiting = userRepository.save(User.builder()
+				.email("jane.doe@example.com")
+				.firstName("jane")
+				.lastName("doe")
+				.password("password")
+				.admin(false)
+				.build());
+
+		mockMvc.perform(post("/api/session/{sessionId}/participate/{userId}", full.getId(), user.getId()))
+				.andExpect(status().isOk());
+		mockMvc.perform(post("/api/session/{sessionId}/participate/{userId}", full.getId(), waiting.getId()))
+				.andExpect(status().isAccepted());
+		mockMvc.perform(post("/api/session/{sessionId}/participate/{userId}", full.getId(), waiting.getId()))
+				.andExpect(status().isConflict());
+
+		// Aucune promotion tant que la place n'est pas libérée
+		assertEquals(0, waitlistPromotionWorker.promoteWaitlisted());
+
+		mockMvc.perform(delete("/api/session/{sessionId}/participate/{userId}", full.getId(), user.getId()))
+				.andExpect(status().isOk());
+		mockMvc.perform(get("/api/session/{sessionId}", full.getId()))
+				.andExpect(jsonPath("$.users").isEmpty());
+
+		assertEquals(1, waitlistPromotionWorker.promoteWaitlisted());
+		assertEquals(0, waitlistPromotionWorker.promoteWaitlisted());
+
+		mockMvc.perform(get("/api/session/{sessionId}", full.getId()))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.users.length()").value(1))
+				.andExpect(jsonPath("$.users[0]").value(waiting.getId()))
+				.andExpect(jsonPath("$.seatsTaken").value(1));
+	}
+
+	@Test
+	@DisplayName("A freed seat goes to the waitlist before a newcomer")
+	@WithMockUser // Sumulation d'un utilisateur authentifié
+	void testParticipate_NewcomerBehindWaitlist() throws Exception {
+		Session full = sessionRepository.save(Session.builder()
+				.name("Full session")
+				.description("Only one seat")
+				.teacher(teacher)
+				.date(new Date())
+				.capacity(1)
+				.build());
+		User waiting = userRepository.save(User.builder()
+				.email("jane.doe@example.com")
+				.firstName("jane")
+				.lastName("doe")
+				.password("password")
+				.admin(false)
+				.build());
+		User newcomer = userRepository.save(User.builder()
+				.email("jim.doe@example.com")
+				.firstName("jim")
+				.lastName("doe")
+				.password("password")
+				.admin(false)
+				.build());
+
+		mockMvc.perform(post("/api/session/{sessionId}/participate/{userId}", full.getId(), user.getId()))
+				.andExpect(status().isOk());
+		mockMvc.perform(post("/api/session/{sessionId}/participate/{userId}", full.getId(), waiting.getId()))
+				.andExpect(status().isAccepted());
+		mockMvc.perform(delete("/api/session/{sessionId}/participate/{userId}", full.getId(), user.getId()))
+				.andExpect(status().isOk());
+
+		// La place est libre mais le worker n'est pas encore passé : le nouvel arrivant attend son tour
+		mockMvc.perform(post("/api/session/{sessionId}/participate/{userId}", full.getId(), newcomer.getId()))
+				.andExpect(status().isAccepted());
+
+		assertEquals(1, waitlistPromotionWorker.promoteWaitlisted());
+		mockMvc.perform(get("/api/session/{sessionId}", full.getId()))
+				.andExpect(jsonPath("$.users.length()").value(1))
+				.andExpect(jsonPath("$.users[0]").value(waiting.getId()));
+		assertEquals(0, waitlistPromotionWorker.promoteWaitlisted());
+
+		mockMvc.perform(delete("/api/session/{sessionId}/participate/{userId}", full.getId(), newcomer.getId()))
+				.andExpect(status().isOk());
+	}
+
+	@Test
+	@DisplayName("Bookings during an opening get a queue ticket and are admitted later")
+	@WithMockUser // Sumulation d'un utilisateur authentifié
+	void testParticipate_WaitingRoom() throws Exception {
+		Session opening = sessionRepository.save(Session.builder()
+				.name("Monday 9:00")
+				.description("Popular class")
+				.teacher(teacher)
+				.date(new Date())
+				.bookingOpensAt(new Date(System.currentTimeMillis() - 1000))
+				.build());
+
+		MvcResult queued = mockMvc.perform(post("/api/session/{sessionId}/participate/{userId}", opening.getId(), user.getId()))
+				.andExpect(status().isAccepted())
+				.andExpect(header().exists("Retry-After"))
+				.andExpect(jsonPath("$.state").value("QUEUED"))
+				.andExpect(jsonPath("$.position").value(0))
+				.andReturn();
+		String location = queued.getResponse().getHeader("Location");
+
+		mockMvc.perform(get("/api/session/{sessionId}", opening.getId()))
+				.andExpect(jsonPath("$.users").isEmpty());
+
+		assertEquals(1, waitingRoom.admit());
+
+		mockMvc.perform(get(location))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.state").value("BOOKED"))
+				.andExpect(jsonPath("$.status").value(200));
+		mockMvc.perform(get("/api/session/{sessionId}", opening.getId()))
+				.andExpect(jsonPath("$.users[0]").value(user.getId()));
+	}
+
+	@Test
+	@DisplayName("Bookings of a lottery session are collected until the draw")
+	@WithMockUser // Sumulation d'un utilisateur authentifié
+	void testParticipate_Lottery() throws Exception {
+		Session drawn = sessionRepository.save(Session.builder()
+				.name("Lottery")
+				.description("Oversubscribed class")
+				.teacher(teacher)
+				.date(new Date())
+				.capacity(1)
+				.bookingOpensAt(new Date())
+				.lottery(true)
+				.build());
+
+		mockMvc.perform(post("/api/session/{sessionId}/participate/{userId}", drawn.getId(), user.getId()))
+				.andExpect(status().isAccepted())
+				.andExpect(header().exists("Retry-After"))
+				.andExpect(jsonPath("$.sessionId").value(drawn.getId()))
+				.andExpect(jsonPath("$.drawAt").exists());
+
+		mockMvc.perform(get("/api/session/{sessionId}", drawn.getId()))
+				.andExpect(jsonPath("$.lottery").value(true))
+				.andExpect(jsonPath("$.users").isEmpty());
+	}
+
+	@Test
+	@DisplayName("Polling an unknown queue ticket returns 404")
+	@WithMockUser // Sumulation d'un utilisateur authentifié
+	void testFindTicket_NotFound() throws Exception {
+		mockMvc.perform(get("/api/session/queue/{ticket}", "unknown"))
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	@DisplayName("Session reads issue a constant number of SELECTs")
+	@WithMockUser // Sumulation d'un utilisateur authentifié
+	void testReads_ConstantStatementCount() throws Exception {
+		addSessionsWithParticipants(2);
+		long findAllBefore = countSelects("/api/session");
+		long pageBefore = countSelects("/api/session/page?size=50");
+		long findByIdBefore = countSelects("/api/session/" + sessionOne.getId());
+
+		addSessionsWithParticipants(10);
+
+		assertEquals(findAllBefore, countSelects("/api/session"));
+		assertEquals(pageBefore, countSelects("/api/session/page?size=50"));
+		assertEquals(findByIdBefore, countSelects("/api/session/" + sessionOne.getId()));
+		assertEquals(1, findAllBefore);
+		assertEquals(1, findByIdBefore);
+	}
+
+	@Test
+	@DisplayName("Unchanged sessions are answered with 304 without querying the database")
+	@WithMockUser // Sumulation d'un utilisateur authentifié
+	void testConditionalGet_NotModified() throws Exception {
+		for (String url : new String[] {"/api/session", "/api/session/" + sessionOne.getId()}) {
+			String etag = mockMvc.perform(get(url))
+					.andExpect(status().isOk())
+					.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+			assertNotNull(etag);
+
+			SqlStatementCounter.reset();
+			mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+					.andExpect(status().isNotModified())
+					.andExpect(header().string(HttpHeaders.ETAG, etag));
+			assertTrue(SqlStatementCounter.statements().isEmpty());
+		}
+	}
+
+	@Test
+	@DisplayName("Participating changes the ETag of the session and of the session list")
+	@WithMockUser // Sumulation d'un utilisateur authentifié
+	void testConditionalGet_ModifiedByParticipation() throws Exception {
+		Long sessionId = sessionOne.getId();
+		String sessionTag = mockMvc.perform(get("/api/session/{sessionId}", sessionId))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		String listTag = mockMvc.perform(get("/api/session"))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+		mockMvc.perform(post("/api/session/{sessionId}/participate/{userId}", sessionId, user.getId()))
+				.andExpect(status().isOk());
+
+		String newSessionTag = mockMvc.perform(get("/api/session/{sessionId}", sessionId).header(HttpHeaders.IF_NONE_MATCH, sessionTag))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.users.length()").value(1))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		String newListTag = mockMvc.perform(get("/api/session").header(HttpHeaders.IF_NONE_MATCH, listTag))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		assertNotEquals(sessionTag, newSessionTag);
+		assertNotEquals(listTag, newListTag);
+
+		// L'autre session n'a pas changé
+		String otherTag = mockMvc.perform(get("/api/session/{sessionId}", sessionTwo.getId()))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		mockMvc.perform(get("/api/session/{sessionId}", sessionTwo.getId()).header(HttpHeaders.IF_NONE_MATCH, otherTag))
+				.andExpect(status().isNotModified());
+	}
+
+	@Test
+	@WithMockUser // Sumulation d'un utilisateur authentifié
+	@DisplayName("Should push a participant-added event to the stream")
+	void testStream_ParticipationEvent() throws Exception {
+		MockHttpServletResponse stream = mockMvc.perform(get("/api/session/stream"))
+				.andExpect(request().asyncStarted())
+				.andExpect(header().string(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_EVENT_STREAM_VALUE))
+				.andReturn().getResponse();
+
+		mockMvc.perform(post("/api/session/{sessionId}/participate/{userId}", sessionOne.getId(), user.getId()))
+				.andExpect(status().isOk());
+
+		// L'événement est écrit par un autre thread
+		String expected = "event:participant-added\ndata:{\"type\":\"participant-added\",\"sessionId\":"
+				+ sessionOne.getId() + ",\"userId\":" + user.getId() + "}";
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!stream.getContentAsString().contains(expected) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		assertTrue(stream.getContentAsString().contains(expected), stream.getContentAsString());
+	}
+
+	// Ajoute des sessions ayant chacune leur professeur et un participant distinct
+	private void addSessionsWithParticipants(int count) {
+		for (int i = 0; i < count; i++) {
+			String suffix = String.valueOf(sessionRepository.count());
+			Teacher otherTeacher = teacherRepository.save(Teacher.builder()
+					.firstName("Teacher")
+					.lastName(suffix)
+					.build());
+			User participant = userRepository.save(User.builder()
+					.email("participant" + suffix + "@example.com")
+					.firstName("participant")
+					.lastName(suffix)
+					.password("password")
+					.admin(false)
+					.build());
+			sessionRepository.save(Session.builder()
+					.name("Session " + suffix)
+					.description("Session description " + suffix)
+					.teacher(otherTeacher)
+					.date(new Date())
+					.userIds(new HashSet<>(Collections.singletonList(participant.getId())))
+					.build());
+		}
+	}
+
+	// Compte les requêtes d'une lecture non servie par le cache des sessions
+	private long countSelects(String url) throws Exception {
+		sessionViewCache.invalidateAll();
+		SqlStatementCounter.reset();
+		mockMvc.perform(get(url)).andExpect(status().isOk());
+		return SqlStatementCounter.selectCount();
+	}
 }
@@ -0,0 +1,264 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.exception.ServiceUnavailableException;
+import com.openclassrooms.starterjwt.services.SessionEvents;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * Classe de test unitaire pour {@link SessionEventStream}.
+ * <p>
+ *     Scénarios testés :
+ *     <ul>
+ *         <li>Les événements sont envoyés dans l'ordre, avec leur numéro, leur type et un contenu compact</li>
+ *         <li>Un client dont la file est pleine est déconnecté sans retarder la publication</li>
+ *         <li>Un client dont l'écriture reste bloquée est déconnecté, les autres continuent de recevoir les événements</li>
+ *         <li>Refus d'un nouveau client au-delà du nombre maximal</li>
+ *         <li>Envoi d'un commentaire périodique aux clients connectés</li>
+ *     </ul>
+ * </p>
+ */
+class SessionEventStreamTest {
+
+	private SessionEvents sessionEvents;
+
+	private ThreadPoolExecutor executor;
+
+	private ExecutorService dispatcher;
+
+	// Bloque l'écriture vers les clients connectés avec l'en-tête X-Stall une fois armé
+	private final CountDownLatch stallRelease = new CountDownLatch(1);
+
+	private final CountDownLatch stalled = new CountDownLatch(1);
+
+	private final AtomicBoolean stallArmed = new AtomicBoolean();
+
+	private SessionEventStream sessionEventStream;
+
+	private MockMvc mockMvc;
+
+	@BeforeEach
+	void setUp() {
+		sessionEvents = new SessionEvents();
+		executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(1);
+		dispatcher = Executors.newSingleThreadExecutor();
+		sessionEventStream = new SessionEventStream(sessionEvents, new ObjectMapper(), new SimpleMeterRegistry(),
+				2, 2, 60000, 3000, 100, executor, dispatcher);
+		mockMvc = MockMvcBuilders.standaloneSetup(new StreamController(sessionEventStream))
+				.addFilters(new StallFilter())
+				.build();
+	}
+
+	@AfterEach
+	void tearDown() {
+		stallRelease.countDown();
+		sessionEventStream.destroy();
+	}
+
+	@Test
+	@DisplayName("Should send the events in order with their id, type and compact data")
+	void testPublish_Sent() throws Exception {
+		MockHttpServletResponse response = connect();
+
+		sessionEvents.created(1L);
+		sessionEvents.participantAdded(1L, 2L);
+
+		String content = awaitContent(response, body -> body.contains("event:participant-added"));
+		assertTrue(content.startsWith("retry:3000\n\n"));
+		assertTrue(content.contains("id:1\nevent:created\ndata:{\"type\":\"created\",\"sessionId\":1}\n\n"));
+		assertTrue(content.indexOf("event:created") < content.indexOf("event:participant-added"));
+		assertTrue(content.contains("data:{\"type\":\"participant-added\",\"sessionId\":1,\"userId\":2}"));
+	}
+
+	@Test
+	@DisplayName("Should disconnect a client whose buffer is full")
+	void testPublish_SlowClient() throws Exception {
+		MockHttpServletResponse response = connect();
+		assertEquals(1, sessionEventStream.getClientCount());
+
+		// The writer is busy, events pile up in the buffer of the client
+		CountDownLatch release = new CountDownLatch(1);
+		executor.execute(() -> {
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		sessionEvents.updated(1L);
+		sessionEvents.updated(2L);
+		sessionEvents.updated(3L);
+		dispatcher.submit(() -> { }).get(5, TimeUnit.SECONDS);
+
+		assertEquals(0, sessionEventStream.getClientCount());
+		assertEquals(1, sessionEventStream.getSlowDisconnectCount());
+
+		release.countDown();
+		executor.submit(() -> { }).get(5, TimeUnit.SECONDS);
+		assertFalse(response.getContentAsString().contains("event:updated"));
+	}
+
+	@Test
+	@DisplayName("Should disconnect a client whose write is stuck and keep writing to the others")
+	void testExpireStalledWrites() throws Exception {
+		MockHttpServletResponse stuck = connect(true);
+		MockHttpServletResponse healthy = connect(false);
+		stallArmed.set(true);
+
+		sessionEvents.created(1L);
+		// Tant que l'unique thread d'écriture est bloqué, le client sain n'est pas servi
+		stalled.await(5, TimeUnit.SECONDS);
+		Thread.sleep(150);
+		sessionEventStream.expireStalledWrites();
+
+		assertEquals(1, sessionEventStream.getStalledDisconnectCount());
+		assertEquals(1, sessionEventStream.getClientCount());
+		assertEquals(2, executor.getCorePoolSize());
+
+		sessionEvents.updated(1L);
+		assertTrue(awaitContent(healthy, body -> body.contains("event:updated")).contains("event:created"));
+
+		// Une fois l'écriture débloquée, le thread supplémentaire est rendu
+		stallRelease.countDown();
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (executor.getCorePoolSize() > 1 && System.nanoTime() < deadline) {
+			Thread.sleep(5);
+		}
+		assertEquals(1, executor.getCorePoolSize());
+		assertFalse(stuck.getContentAsString().contains("event:updated"));
+	}
+
+	@Test
+	@DisplayName("Should refuse clients beyond the maximum")
+	void testOpen_TooManyClients() {
+		sessionEventStream.open();
+		sessionEventStream.open();
+
+		ServiceUnavailableException e = assertThrows(ServiceUnavailableException.class, () -> sessionEventStream.open());
+		assertEquals(3, e.getRetryAfterSeconds());
+	}
+
+	@Test
+	@DisplayName("Should send a heartbeat comment to connected clients")
+	void testHeartbeat() throws Exception {
+		MockHttpServletResponse response = connect();
+
+		sessionEventStream.heartbeat();
+
+		assertTrue(awaitContent(response, body -> body.endsWith(":\n\n")).endsWith("retry:3000\n\n:\n\n"));
+	}
+
+	private MockHttpServletResponse connect() throws Exception {
+		return connect(false);
+	}
+
+	private MockHttpServletResponse connect(boolean stall) throws Exception {
+		MockHttpServletRequestBuilder request = get("/stream");
+		if (stall) {
+			request.header("X-Stall", "true");
+		}
+		return mockMvc.perform(request)
+				.andExpect(request().asyncStarted())
+				.andReturn().getResponse();
+	}
+
+	// Les événements sont écrits par le pool, la réponse est relue jusqu'à ce qu'ils arrivent
+	private static String awaitContent(MockHttpServletResponse response, Predicate<String> condition) throws Exception {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		String content = response.getContentAsString();
+		while (!condition.test(content) && System.nanoTime() < deadline) {
+			Thread.sleep(5);
+			content = response.getContentAsString();
+		}
+		assertTrue(condition.test(content), content);
+		return content;
+	}
+
+	// Simule un client qui ne lit plus : l'écriture attend comme sur une socket pleine
+	private class StallFilter extends OncePerRequestFilter {
+		@Override
+		protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+				throws ServletException, IOException {
+			if (request.getHeader("X-Stall") == null) {
+				chain.doFilter(request, response);
+				return;
+			}
+			ServletOutputStream out = response.getOutputStream();
+			chain.doFilter(request, new HttpServletResponseWrapper(response) {
+				@Override
+				public ServletOutputStream getOutputStream() {
+					return new ServletOutputStream() {
+						@Override
+						public void write(int b) throws IOException {
+							if (stallArmed.get()) {
+								stalled.countDown();
+								try {
+									stallRelease.await();
+								} catch (InterruptedException e) {
+									Thread.currentThread().interrupt();
+									throw new IOException(e);
+								}
+							}
+							out.write(b);
+						}
+
+						@Override
+						public boolean isReady() {
+							return true;
+						}
+
+						@Override
+						public void setWriteListener(WriteListener writeListener) {
+						}
+					};
+				}
+			});
+		}
+	}
+
+	@RestController
+	static class StreamController {
+		private final SessionEventStream sessionEventStream;
+
+		StreamController(SessionEventStream sessionEventStream) {
+			this.sessionEventStream = sessionEventStream;
+		}
+
+		@GetMapping("/stream")
+		SseEmitter stream() {
+			return sessionEventStream.open();
+		}
+	}
+}
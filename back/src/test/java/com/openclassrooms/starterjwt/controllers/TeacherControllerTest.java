@@ -9,13 +9,17 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.time.LocalDateTime;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -27,6 +31,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  *         <li>Récupération d'un enseignant par son ID - succès</li>
  *         <li>Récupération d'un enseignant par son ID - échec (non trouvée)</li>
  *         <li>Récupétation de tous les enseignants - succès</li>
+ *         <li>Lecture conditionnelle : 304 tant que les enseignants n'ont pas changé</li>
+ *         <li>Liste des enseignants encodée une seule fois tant qu'elle n'a pas changé</li>
  *     </ul>
  *</p>
  */
@@ -41,6 +47,9 @@ public class TeacherControllerTest {
 	@Autowired
 	private TeacherRepository teacherRepository;
 
+	@Autowired
+	private JsonResponseCache jsonResponseCache;
+
 	private final Teacher teacherOne = Teacher.builder()
 			.firstName("Albus")
 			.lastName("Dumbledore")
@@ -102,4 +111,39 @@ public class TeacherControllerTest {
 				.andExpect(jsonPath("$[0].firstName").value(teacherOne.getFirstName()))
 				.andExpect(jsonPath("$[1].firstName").value(teacherTwo.getFirstName()));
 	}
+
+	@Test
+	@DisplayName("Unchanged teachers are answered with 304 until one is saved")
+	@WithMockUser // Sumulation d'un utilisateur authentifié
+	void testFindAll_NotModified() throws Exception {
+		String etag = mockMvc.perform(get("/api/teacher"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		assertNotNull(etag);
+
+		mockMvc.perform(get("/api/teacher").header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified());
+
+		teacherRepository.save(Teacher.builder().firstName("Severus").lastName("Snape").build());
+
+		mockMvc.perform(get("/api/teacher").header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(3));
+	}
+
+	@Test
+	@DisplayName("The teacher list is encoded once while it does not change")
+	@WithMockUser // Sumulation d'un utilisateur authentifié
+	void testFindAll_EncodedOnce() throws Exception {
+		String body = mockMvc.perform(get("/api/teacher"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		long misses = jsonResponseCache.getMissCount();
+
+		mockMvc.perform(get("/api/teacher"))
+				.andExpect(status().isOk())
+				.andExpect(content().json(body, true));
+
+		assertEquals(misses, jsonResponseCache.getMissCount());
+	}
 }
@@ -2,6 +2,11 @@ package com.openclassrooms.starterjwt.controllers;
 
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.jwt.JwtClaims;
+import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
+import com.openclassrooms.starterjwt.security.services.TokenRevocationService;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import com.openclassrooms.starterjwt.services.UserCache;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -14,6 +19,7 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
@@ -29,6 +35,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  *         <li>Récupération d'un utilisateur par son ID - échec (non trouvée)</li>
  *         <li>Récupération d'un utilisateur par son ID - échec (format invalide)</li>
  *         <li>Suppression d'un utilisateur par son ID - succès</li>
+ *         <li>Suppression d'un utilisateur par son ID - révocation du token utilisé</li>
  *         <li>Suppression d'un utilisateur par son ID - échec (non trouvée)</li>
  *         <li>Suppression d'un utilisateur par son ID - échec (non autorisé)</li>
  *     </ul>
@@ -45,6 +52,15 @@ public class UserControllerTest {
 	@Autowired
 	private UserRepository userRepository;
 
+	@Autowired
+	private UserCache userCache;
+
+	@Autowired
+	private JwtUtils jwtUtils;
+
+	@Autowired
+	private TokenRevocationService tokenRevocationService;
+
 	// Création d'un utilisateur de test
 	private final User user = User.builder()
 			.email("john.doe@example.com")
@@ -64,6 +80,7 @@ public class UserControllerTest {
 
 	@BeforeEach
 	void setUp() {
+		userCache.invalidateAll();
 		userRepository.deleteAll();
 		userRepository.save(user);
 		userRepository.save(userAdmin);
@@ -122,6 +139,22 @@ public class UserControllerTest {
 				.andExpect(status().isOk());
 	}
 
+	@Test
+	@DisplayName("Successful delete user - revokes the token used")
+	void testDelete_RevokesToken() throws Exception {
+		String token = jwtUtils.generateJwtToken(UserDetailsImpl.build(user));
+		JwtClaims claims = jwtUtils.parseJwtToken(token);
+
+		mockMvc.perform(delete("/api/user/{id}", user.getId())
+						.header("Authorization", "Bearer " + token))
+				.andExpect(status().isOk());
+
+		assertTrue(tokenRevocationService.isRevoked(claims.getTokenId()));
+		mockMvc.perform(get("/api/session")
+						.header("Authorization", "Bearer " + token))
+				.andExpect(status().isUnauthorized());
+	}
+
 	@Test
 	@DisplayName("Fail to delete user - Not found")
 	@WithMockUser(username = "john.doe@example.com") // Sumulation d'un utilisateur authentifié
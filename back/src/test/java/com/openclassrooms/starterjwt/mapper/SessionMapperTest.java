@@ -5,7 +5,6 @@ import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.services.TeacherService;
-import com.openclassrooms.starterjwt.services.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -18,6 +17,7 @@ import org.springframework.test.context.ActiveProfiles;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -31,6 +31,7 @@ import static org.mockito.Mockito.*;
  *         <li>Conversion d'un SessionDto en Session</li>
  *         <li>Conversion d'un Session en SessionDto</li>
  *         <li>Gestion des cas avec null et listes vides</li>
+ *         <li>Participants du SessionDto ignorés, sans recherche des utilisateurs</li>
  *     </ul>
  * </p>
  */
@@ -45,9 +46,6 @@ class SessionMapperTest {
 	@Mock
 	private TeacherService teacherService;
 
-	@Mock
-	private UserService userService;
-
 	private SessionDto sessionDto;
 	private Session session;
 	private Teacher teacher;
@@ -80,7 +78,6 @@ class SessionMapperTest {
 
 
 		List<Long> userIds = Arrays.asList(userOne.getId(), userTwo.getId());
-		List<User> users = Arrays.asList(userOne, userTwo);
 
 		sessionDto = new SessionDto();
 		sessionDto.setDescription("Session Test");
@@ -90,7 +87,7 @@ class SessionMapperTest {
 		session = new Session();
 		session.setDescription("Session Test");
 		session.setTeacher(teacher);
-		session.setUsers(users);
+		session.setUserIds(new HashSet<>(userIds));
 	}
 
 	@Test // Vérifie que la conversion d'un SessionDto en Session fonctionne correctement.
@@ -98,8 +95,6 @@ class SessionMapperTest {
 	void testToEntity() {
 		// GIVEN
 		when(teacherService.findById(1L)).thenReturn(teacher);
-		when(userService.findById(1L)).thenReturn(userOne);
-		when(userService.findById(2L)).thenReturn(userTwo);
 
 		// WHEN
 		Session mappedSession = sessionMapper.toEntity(sessionDto);
@@ -108,14 +103,9 @@ class SessionMapperTest {
 		assertNotNull(mappedSession);
 		assertEquals("Session Test", mappedSession.getDescription());
 		assertEquals(teacher, mappedSession.getTeacher());
-		assertEquals(2, mappedSession.getUsers().size());
-		assertTrue(mappedSession.getUsers().contains(userOne));
-		assertTrue(mappedSession.getUsers().contains(userTwo));
 
 		// Vérifier que les services mockés ont bien été appelés
 		verify(teacherService, times(1)).findById(1L);
-		verify(userService, times(1)).findById(1L);
-		verify(userService, times(1)).findById(2L);
 	}
 
 	@Test // Vérifie que la conversion d'une Session en SessionDto fonctionne correctement.
@@ -133,6 +123,16 @@ class SessionMapperTest {
 		assertTrue(mappedDto.getUsers().contains(2L));
 	}
 
+	@Test // Vérifie que les participants du SessionDto ne sont pas convertis : ils ne changent que par la participation.
+	@DisplayName("Should ignore the participants of the SessionDto")
+	void testToEntity_IgnoresUsers() {
+		// WHEN
+		Session mappedSession = sessionMapper.toEntity(sessionDto);
+
+		// THEN
+		assertNull(mappedSession.getUserIds());
+	}
+
 	@Test // Vérifie que la conversion d'une SessionDto en Session gère les cas où teacher_id est null.
 	@DisplayName("Should correctly handle null teacher_id in SessionDto")
 	void testToEntity_NullTeacher() {
@@ -158,8 +158,7 @@ class SessionMapperTest {
 
 		// THEN
 		assertNotNull(mappedSession);
-		assertNotNull(mappedSession.getUsers());
-		assertTrue(mappedSession.getUsers().isEmpty());
+		assertNull(mappedSession.getUserIds());
 	}
 
 	@Test // Vérifie que la conversion d'une SessionDto en Session gère les cas où la liste des utilisateurs est null.
@@ -173,8 +172,7 @@ class SessionMapperTest {
 
 		// THEN
 		assertNotNull(mappedSession);
-		assertNotNull(mappedSession.getUsers());
-		assertTrue(mappedSession.getUsers().isEmpty());
+		assertNull(mappedSession.getUserIds());
 	}
 
 	@Test
@@ -184,8 +182,6 @@ class SessionMapperTest {
 		List<SessionDto> dtoList = Arrays.asList(sessionDto, sessionDto);
 
 		when(teacherService.findById(1L)).thenReturn(teacher);
-		when(userService.findById(1L)).thenReturn(userOne);
-		when(userService.findById(2L)).thenReturn(userTwo);
 
 		// WHEN - Conversion en liste de Session
 		List<Session> sessions = sessionMapper.toEntity(dtoList);
@@ -0,0 +1,51 @@
+package com.openclassrooms.starterjwt.security.crypto;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *  Classe de test unitaire pour {@link BCryptStrengthCalibrator}.
+ *<p>
+ *     Scénarios testés:
+ *     <ul>
+ *         <li>Utilisation du coût configuré sans calibration</li>
+ *         <li>Calibration bornée par le coût minimal et maximal</li>
+ *         <li>Lecture du coût d'un hash BCrypt</li>
+ *     </ul>
+ *</p>
+ */
+class BCryptStrengthCalibratorTest {
+
+	@Test
+	@DisplayName("Use the configured strength without calibrating")
+	void testConfiguredStrength() {
+		BCryptStrengthCalibrator calibrator = new BCryptStrengthCalibrator(12, 1, 4, 16);
+
+		assertEquals(12, calibrator.getStrength());
+		assertTrue(calibrator.hasCurrentStrength("$2a$12$.Hsa/ZjUVaHqi0tp9xieMeewrnZxrZ5pQRzddUXE/WjDu2ZThe6Iq"));
+		assertFalse(calibrator.hasCurrentStrength("$2a$10$.Hsa/ZjUVaHqi0tp9xieMeewrnZxrZ5pQRzddUXE/WjDu2ZThe6Iq"));
+	}
+
+	@Test
+	@DisplayName("Keep the minimal strength when the target is unreachable")
+	void testCalibrate_minimalStrength() {
+		assertEquals(4, BCryptStrengthCalibrator.calibrate(0, 4, 6));
+	}
+
+	@Test
+	@DisplayName("Never exceed the maximal strength")
+	void testCalibrate_maximalStrength() {
+		assertEquals(5, BCryptStrengthCalibrator.calibrate(60_000, 4, 5));
+	}
+
+	@Test
+	@DisplayName("Read the cost of a BCrypt hash")
+	void testStrengthOf() {
+		assertEquals(6, BCryptStrengthCalibrator.strengthOf(new BCryptPasswordEncoder(6).encode("password")));
+		assertEquals(-1, BCryptStrengthCalibrator.strengthOf("plain"));
+		assertEquals(-1, BCryptStrengthCalibrator.strengthOf(null));
+	}
+}
@@ -0,0 +1,83 @@
+package com.openclassrooms.starterjwt.security.crypto;
+
+import com.openclassrooms.starterjwt.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *  Classe de test unitaire pour {@link BoundedPasswordEncoder}.
+ *<p>
+ *     Scénarios testés:
+ *     <ul>
+ *         <li>Hachage et vérification délégués au pool dédié</li>
+ *         <li>Rejet immédiat lorsque le pool et sa file sont pleins</li>
+ *         <li>Enregistrement des métriques de latence et de rejet</li>
+ *     </ul>
+ *</p>
+ */
+class BoundedPasswordEncoderTest {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private BoundedPasswordEncoder encoder;
+
+	@AfterEach
+	void cleanUp() {
+		encoder.destroy();
+	}
+
+	@Test
+	@DisplayName("Encode and match a password on the hashing pool")
+	void testEncodeAndMatches() {
+		encoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), 2, 4, 1, meterRegistry);
+
+		String encoded = encoder.encode("password");
+
+		assertTrue(encoder.matches("password", encoded));
+		assertFalse(encoder.matches("wrongpassword", encoded));
+		assertEquals(1, meterRegistry.get("password.hash.duration").tag("operation", "encode").timer().count());
+		assertEquals(2, meterRegistry.get("password.hash.duration").tag("operation", "matches").timer().count());
+		assertEquals(3, meterRegistry.get("password.hash.wait").timer().count());
+	}
+
+	@Test
+	@DisplayName("Reject immediately when the pool and its queue are full")
+	void testRejectWhenSaturated() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		PasswordEncoder blockingEncoder = new BCryptPasswordEncoder(4) {
+			@Override
+			public String encode(CharSequence rawPassword) {
+				started.countDown();
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return super.encode(rawPassword);
+			}
+		};
+		encoder = new BoundedPasswordEncoder(blockingEncoder, 1, 0, 3, meterRegistry);
+
+		CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("password"));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		ServiceUnavailableException exception = assertThrows(ServiceUnavailableException.class,
+				() -> encoder.encode("password"));
+		assertEquals(3, exception.getRetryAfterSeconds());
+		assertEquals(1.0, meterRegistry.get("password.hash.rejected").counter().count());
+
+		release.countDown();
+		assertNotNull(running.get(5, TimeUnit.SECONDS));
+	}
+}
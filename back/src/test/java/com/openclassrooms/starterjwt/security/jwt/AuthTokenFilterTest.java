@@ -7,6 +7,9 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.services.UserCache;
+import com.openclassrooms.starterjwt.security.services.TokenRevocationService;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -30,6 +33,8 @@ import org.springframework.test.web.servlet.MockMvc;
  *         <li>Requête sans token</li>
  *         <li>Requête avec un token invalide</li>
  *         <li>Requête avec un token valide</li>
+ *         <li>Requête avec un token valide d'un utilisateur supprimé</li>
+ *         <li>Requête avec un token révoqué</li>
  *     </ul>
  * </p>
  */
@@ -50,8 +55,15 @@ class AuthTokenFilterTest {
 	@Autowired
 	private UserRepository userRepository;
 
+	@Autowired
+	private UserCache userCache;
+
+	@Autowired
+	private TokenRevocationService tokenRevocationService;
+
 	@BeforeEach
 	void setUp() {
+		userCache.invalidateAll();
 		userRepository.deleteAll();
 
 		User user = new User();
@@ -101,4 +113,41 @@ class AuthTokenFilterTest {
 				.andExpect(status().isOk());
 	}
 
-}
\ No newline at end of file
+	@Test
+	@DisplayName("Request with valid token of a deleted user - should return 401 Unauthorized")
+	void testRequestWithTokenOfDeletedUser() throws Exception {
+		UserDetailsImpl deletedUser = UserDetailsImpl.builder()
+				.id(-1L)
+				.username("deleted@studio.com")
+				.firstName("Deleted")
+				.lastName("User")
+				.admin(false)
+				.build();
+		String token = jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(deletedUser, null));
+
+		assertTrue(jwtUtils.validateJwtToken(token));
+
+		mockMvc.perform(get("/api/session")
+						.header("Authorization", "Bearer " + token))
+				.andExpect(status().isUnauthorized());
+	}
+
+	@Test
+	@DisplayName("Request with a revoked token - should return 401 Unauthorized")
+	void testRequestWithRevokedToken() throws Exception {
+		UserDetails userDetails = userDetailsService.loadUserByUsername("yoga@studio.com");
+		String token = jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(userDetails, null));
+		JwtClaims claims = jwtUtils.parseJwtToken(token);
+
+		mockMvc.perform(get("/api/session")
+						.header("Authorization", "Bearer " + token))
+				.andExpect(status().isOk());
+
+		tokenRevocationService.revoke(claims.getTokenId(), claims.getExpiration().toInstant());
+
+		mockMvc.perform(get("/api/session")
+						.header("Authorization", "Bearer " + token))
+				.andExpect(status().isUnauthorized());
+	}
+
+}
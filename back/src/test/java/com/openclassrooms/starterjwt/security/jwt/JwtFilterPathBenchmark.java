@@ -0,0 +1,74 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark JMH comparant le chemin de vérification du token dans {@link AuthTokenFilter}.
+ * <p>
+ *     Chemins mesurés :
+ *     <ul>
+ *         <li>Ancien chemin : validation puis extraction du sujet (deux vérifications de signature)</li>
+ *         <li>Nouveau chemin sans cache : une seule vérification par requête</li>
+ *         <li>Nouveau chemin avec cache : token déjà vérifié par une requête précédente</li>
+ *     </ul>
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtFilterPathBenchmark {
+
+	private static final String SECRET = "openclassrooms";
+
+	private String token;
+	private JwtUtils jwtUtils;
+
+	@Setup
+	public void setUp() {
+		token = Jwts.builder()
+				.setSubject("yoga@studio.com")
+				.setIssuedAt(Date.from(Instant.now()))
+				.setExpiration(Date.from(Instant.now().plusSeconds(3600L)))
+				.signWith(SignatureAlgorithm.HS512, SECRET)
+				.compact();
+
+		jwtUtils = new JwtUtils();
+		ReflectionTestUtils.setField(jwtUtils, "jwtSecret", SECRET);
+		jwtUtils.init();
+	}
+
+	@Benchmark
+	public String legacyValidateThenExtract() {
+		Jwts.parser().setSigningKey(SECRET).parseClaimsJws(token);
+		return Jwts.parser().setSigningKey(SECRET).parseClaimsJws(token).getBody().getSubject();
+	}
+
+	@Benchmark
+	public String parseOnceUncached() {
+		return jwtUtils.verifyJwtToken(token).getSubject();
+	}
+
+	@Benchmark
+	public String parseOnceCached() {
+		return jwtUtils.parseJwtToken(token).getSubject();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(JwtFilterPathBenchmark.class.getSimpleName())
+				.build()).run();
+	}
+}
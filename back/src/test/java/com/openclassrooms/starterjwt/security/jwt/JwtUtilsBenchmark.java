@@ -0,0 +1,107 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark JMH de {@link JwtUtils} sous contention (plusieurs threads partagent la même instance).
+ * <p>
+ *     Opérations mesurées :
+ *     <ul>
+ *         <li>Génération d'un token avec la clé préparée, comparée à l'ancienne dérivation de la clé à chaque appel</li>
+ *         <li>Vérification de signature avec le parser partagé, comparée à un nouveau parser par appel</li>
+ *         <li>Validation et extraction du sujet via le cache des tokens vérifiés</li>
+ *     </ul>
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Threads(4)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtUtilsBenchmark {
+
+	private static final String SECRET = "openclassrooms";
+
+	private JwtUtils jwtUtils;
+	private UserDetailsImpl principal;
+	private String token;
+
+	@Setup
+	public void setUp() {
+		jwtUtils = new JwtUtils();
+		ReflectionTestUtils.setField(jwtUtils, "jwtSecret", SECRET);
+		ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 900000);
+		jwtUtils.init();
+
+		principal = UserDetailsImpl.builder()
+				.id(1L)
+				.username("yoga@studio.com")
+				.firstName("Admin")
+				.lastName("Admin")
+				.admin(true)
+				.build();
+		token = jwtUtils.generateJwtToken(principal);
+	}
+
+	@Benchmark
+	public String generate() {
+		return jwtUtils.generateJwtToken(principal);
+	}
+
+	// Même token que generate(), seule la clé est dérivée du secret à chaque appel
+	@Benchmark
+	public String legacyGenerate() {
+		return Jwts.builder()
+				.setHeaderParam(JwsHeader.KEY_ID, "default")
+				.setId(UUID.randomUUID().toString())
+				.setSubject(principal.getUsername())
+				.claim(JwtUtils.CLAIM_ID, principal.getId())
+				.claim(JwtUtils.CLAIM_FIRST_NAME, principal.getFirstName())
+				.claim(JwtUtils.CLAIM_LAST_NAME, principal.getLastName())
+				.claim(JwtUtils.CLAIM_ADMIN, principal.getAdmin())
+				.setIssuedAt(new Date())
+				.setExpiration(new Date(System.currentTimeMillis() + 900000))
+				.signWith(SignatureAlgorithm.HS512, SECRET)
+				.compact();
+	}
+
+	@Benchmark
+	public JwtClaims verify() {
+		return jwtUtils.verifyJwtToken(token);
+	}
+
+	@Benchmark
+	public String legacyVerify() {
+		return Jwts.parser().setSigningKey(SECRET).parseClaimsJws(token).getBody().getSubject();
+	}
+
+	@Benchmark
+	public boolean validate() {
+		return jwtUtils.validateJwtToken(token);
+	}
+
+	@Benchmark
+	public String extractSubject() {
+		return jwtUtils.getUserNameFromJwtToken(token);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(JwtUtilsBenchmark.class.getSimpleName())
+				.build()).run();
+	}
+}
@@ -1,10 +1,13 @@
 package com.openclassrooms.starterjwt.security.jwt;
 
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import io.jsonwebtoken.JwsHeader;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.Instant;
@@ -21,6 +24,14 @@ import static org.junit.jupiter.api.Assertions.*;
  *         <li>Validation d'un token valide</li>
  *         <li>Rejet d'un token expiré</li>
  *         <li>Rejet d'un token invalide</li>
+ *         <li>Extraction des claims d'un token valide en une seule vérification</li>
+ *         <li>Réutilisation des claims d'un token déjà vérifié</li>
+ *         <li>Rejet d'un token signé avec une autre clé</li>
+ *         <li>Génération d'un token portant l'identité de l'utilisateur</li>
+ *         <li>Génération d'un identifiant distinct pour chaque token</li>
+ *         <li>Signature avec la clé courante et son identifiant (kid)</li>
+ *         <li>Acceptation d'un token signé avec une clé précédente</li>
+ *         <li>Rejet d'un token portant un kid inconnu</li>
  *     </ul>
  *</p>
  */
@@ -36,6 +47,10 @@ class JwtUtilsTest {
 		String secret = "openclassrooms";
 		jwtUtils = new JwtUtils();
 		ReflectionTestUtils.setField(jwtUtils, "jwtSecret", secret);
+		ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 60000);
+		ReflectionTestUtils.setField(jwtUtils, "jwtKeyId", "current");
+		ReflectionTestUtils.setField(jwtUtils, "jwtPreviousKeys", "previous:previoussecret");
+		jwtUtils.init();
 
 		validToken = Jwts.builder()
 				.setSubject("yoga@studio.com")
@@ -77,4 +92,109 @@ class JwtUtilsTest {
 		String invalidToken = "invalid-token";
 		assertFalse(jwtUtils.validateJwtToken(invalidToken));
 	}
-}
\ No newline at end of file
+
+	@Test
+	@DisplayName("Parse claims from a valid JWT token")
+	void testParseJwtToken_validToken() {
+		JwtClaims claims = jwtUtils.parseJwtToken(validToken);
+
+		assertNotNull(claims);
+		assertEquals("yoga@studio.com", claims.getSubject());
+		assertNotNull(claims.getIssuedAt());
+		assertTrue(claims.getExpiration().after(new Date()));
+	}
+
+	@Test
+	@DisplayName("Reuse claims of an already verified JWT token")
+	void testParseJwtToken_cachedToken() {
+		JwtClaims first = jwtUtils.parseJwtToken(validToken);
+		JwtClaims second = jwtUtils.parseJwtToken(validToken);
+
+		assertSame(first, second);
+	}
+
+	@Test
+	@DisplayName("Reject a JWT token signed with another key")
+	void testParseJwtToken_wrongSignature() {
+		String forgedToken = Jwts.builder()
+				.setSubject("yoga@studio.com")
+				.setExpiration(Date.from(Instant.now().plusSeconds(1800L)))
+				.signWith(SignatureAlgorithm.HS512, "anothersecret")
+				.compact();
+
+		assertNull(jwtUtils.parseJwtToken(forgedToken));
+		assertNull(jwtUtils.parseJwtToken(null));
+	}
+
+	@Test
+	@DisplayName("Generate a JWT token carrying the user identity")
+	void testGenerateJwtToken_identityClaims() {
+		UserDetailsImpl principal = UserDetailsImpl.builder()
+				.id(42L)
+				.username("yoga@studio.com")
+				.firstName("Admin")
+				.lastName("Studio")
+				.admin(true)
+				.build();
+
+		String token = jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(principal, null));
+		JwtClaims claims = jwtUtils.parseJwtToken(token);
+
+		assertNotNull(claims);
+		assertEquals("yoga@studio.com", claims.getSubject());
+		assertEquals(42L, claims.getId());
+		assertEquals("Admin", claims.getFirstName());
+		assertEquals("Studio", claims.getLastName());
+		assertTrue(claims.getAdmin());
+	}
+
+	@Test
+	@DisplayName("Generate a distinct token id for each JWT token")
+	void testGenerateJwtToken_uniqueTokenId() {
+		UserDetailsImpl principal = UserDetailsImpl.builder().id(42L).username("yoga@studio.com").build();
+
+		JwtClaims first = jwtUtils.parseJwtToken(jwtUtils.generateJwtToken(principal));
+		JwtClaims second = jwtUtils.parseJwtToken(jwtUtils.generateJwtToken(principal));
+
+		assertNotNull(first.getTokenId());
+		assertNotEquals(first.getTokenId(), second.getTokenId());
+	}
+
+	@Test
+	@DisplayName("Sign a JWT token with the current key and its key id")
+	void testGenerateJwtToken_currentKeyId() {
+		String token = jwtUtils.generateJwtToken(UserDetailsImpl.builder().id(42L).username("yoga@studio.com").build());
+
+		assertEquals("current", Jwts.parser().setSigningKey("openclassrooms").parseClaimsJws(token).getHeader().getKeyId());
+		assertNotNull(jwtUtils.parseJwtToken(token));
+	}
+
+	@Test
+	@DisplayName("Accept a JWT token signed with a previous key")
+	void testParseJwtToken_previousKey() {
+		String token = Jwts.builder()
+				.setHeaderParam(JwsHeader.KEY_ID, "previous")
+				.setSubject("yoga@studio.com")
+				.setExpiration(Date.from(Instant.now().plusSeconds(1800L)))
+				.signWith(SignatureAlgorithm.HS512, "previoussecret")
+				.compact();
+
+		JwtClaims claims = jwtUtils.parseJwtToken(token);
+
+		assertNotNull(claims);
+		assertEquals("yoga@studio.com", claims.getSubject());
+	}
+
+	@Test
+	@DisplayName("Reject a JWT token with an unknown key id")
+	void testParseJwtToken_unknownKeyId() {
+		String token = Jwts.builder()
+				.setHeaderParam(JwsHeader.KEY_ID, "retired")
+				.setSubject("yoga@studio.com")
+				.setExpiration(Date.from(Instant.now().plusSeconds(1800L)))
+				.signWith(SignatureAlgorithm.HS512, "openclassrooms")
+				.compact();
+
+		assertNull(jwtUtils.parseJwtToken(token));
+	}
+}
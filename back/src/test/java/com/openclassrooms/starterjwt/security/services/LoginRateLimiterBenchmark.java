@@ -0,0 +1,67 @@
+package com.openclassrooms.starterjwt.security.services;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark JMH du coût ajouté au chemin de connexion par {@link LoginRateLimiter}.
+ * <p>
+ *     Chaque appel porte sur un email et une adresse tirés parmi plusieurs milliers,
+ *     avec plusieurs threads en concurrence sur les verrous.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class LoginRateLimiterBenchmark {
+
+	private static final int KEYS = 10_000;
+
+	private LoginRateLimiter limiter;
+	private String[] emails;
+	private String[] addresses;
+
+	@Setup
+	public void setUp() {
+		// Large capacities so that the benchmark measures the bookkeeping, not the rejections
+		limiter = new LoginRateLimiter(
+				new LoginRateLimiter.Policy(Integer.MAX_VALUE, 60),
+				new LoginRateLimiter.Policy(Integer.MAX_VALUE, 60),
+				3, 600000, System::nanoTime);
+
+		emails = new String[KEYS];
+		addresses = new String[KEYS];
+		for (int i = 0; i < KEYS; i++) {
+			emails[i] = "user" + i + "@example.com";
+			addresses[i] = "10.0." + (i / 256) + "." + (i % 256);
+		}
+	}
+
+	@Benchmark
+	public void acquire() {
+		int i = ThreadLocalRandom.current().nextInt(KEYS);
+		limiter.acquire(emails[i], addresses[i]);
+	}
+
+	@Benchmark
+	public void acquireThenFail() {
+		int i = ThreadLocalRandom.current().nextInt(KEYS);
+		limiter.acquire(emails[i], addresses[i]);
+		limiter.recordFailure(emails[i], addresses[i]);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(LoginRateLimiterBenchmark.class.getSimpleName())
+				.build()).run();
+	}
+}
@@ -0,0 +1,102 @@
+package com.openclassrooms.starterjwt.security.services;
+
+import com.openclassrooms.starterjwt.exception.TooManyRequestsException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *  Classe de test unitaire pour {@link LoginRateLimiter}.
+ *<p>
+ *     Scénarios testés:
+ *     <ul>
+ *         <li>Rejet au-delà de la capacité d'un email</li>
+ *         <li>Rejet au-delà de la capacité d'une adresse</li>
+ *         <li>Coût supérieur des tentatives échouées</li>
+ *         <li>Recharge des jetons avec le temps</li>
+ *         <li>Éviction des compteurs inactifs</li>
+ *     </ul>
+ *</p>
+ */
+class LoginRateLimiterTest {
+
+	private final AtomicLong now = new AtomicLong();
+
+	private LoginRateLimiter limiter;
+
+	@BeforeEach
+	void setUp() {
+		limiter = new LoginRateLimiter(
+				new LoginRateLimiter.Policy(3, 6),
+				new LoginRateLimiter.Policy(5, 60),
+				3, 60000, now::get);
+	}
+
+	@Test
+	@DisplayName("Reject attempts beyond the email capacity")
+	void testAcquire_emailLimit() {
+		for (int i = 0; i < 3; i++) {
+			limiter.acquire("John.Doe@example.com", "10.0.0.1");
+		}
+
+		TooManyRequestsException exception = assertThrows(TooManyRequestsException.class,
+				() -> limiter.acquire("john.doe@example.com", "10.0.0.2"));
+		assertEquals(10, exception.getRetryAfterSeconds());
+
+		assertDoesNotThrow(() -> limiter.acquire("jane.doe@example.com", "10.0.0.2"));
+	}
+
+	@Test
+	@DisplayName("Reject attempts beyond the address capacity")
+	void testAcquire_addressLimit() {
+		for (int i = 0; i < 5; i++) {
+			limiter.acquire("user" + i + "@example.com", "10.0.0.1");
+		}
+
+		assertThrows(TooManyRequestsException.class, () -> limiter.acquire("other@example.com", "10.0.0.1"));
+		// The email token is given back when the address is over the limit
+		assertDoesNotThrow(() -> limiter.acquire("other@example.com", "10.0.0.2"));
+	}
+
+	@Test
+	@DisplayName("Charge failed attempts more than successful ones")
+	void testRecordFailure() {
+		limiter.acquire("john.doe@example.com", "10.0.0.1");
+		limiter.recordFailure("john.doe@example.com", "10.0.0.1");
+
+		assertThrows(TooManyRequestsException.class, () -> limiter.acquire("john.doe@example.com", "10.0.0.1"));
+	}
+
+	@Test
+	@DisplayName("Refill tokens over time")
+	void testRefill() {
+		for (int i = 0; i < 3; i++) {
+			limiter.acquire("john.doe@example.com", "10.0.0.1");
+		}
+		assertThrows(TooManyRequestsException.class, () -> limiter.acquire("john.doe@example.com", "10.0.0.1"));
+
+		now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+
+		assertDoesNotThrow(() -> limiter.acquire("john.doe@example.com", "10.0.0.1"));
+	}
+
+	@Test
+	@DisplayName("Evict idle buckets")
+	void testEvictIdleBuckets() {
+		limiter.acquire("john.doe@example.com", "10.0.0.1");
+		assertEquals(2, limiter.size());
+
+		now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+		limiter.evictIdleBuckets();
+		assertEquals(2, limiter.size());
+
+		now.addAndGet(TimeUnit.SECONDS.toNanos(31));
+		limiter.evictIdleBuckets();
+		assertEquals(0, limiter.size());
+	}
+}
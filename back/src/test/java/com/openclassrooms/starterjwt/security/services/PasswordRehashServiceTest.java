@@ -0,0 +1,81 @@
+package com.openclassrooms.starterjwt.security.services;
+
+import com.openclassrooms.starterjwt.exception.ServiceUnavailableException;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.crypto.BCryptStrengthCalibrator;
+import com.openclassrooms.starterjwt.services.UserCache;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ *  Classe de test unitaire pour {@link PasswordRehashService}.
+ *<p>
+ *     Scénarios testés:
+ *     <ul>
+ *         <li>Détection d'un hash produit avec un autre coût</li>
+ *         <li>Remplacement du hash vérifié et invalidation du cache</li>
+ *         <li>Abandon du rehash lorsque le pool de hachage est plein</li>
+ *     </ul>
+ *</p>
+ */
+@ExtendWith(MockitoExtension.class)
+class PasswordRehashServiceTest {
+
+	private static final String OLD_HASH = "$2a$10$.Hsa/ZjUVaHqi0tp9xieMeewrnZxrZ5pQRzddUXE/WjDu2ZThe6Iq";
+
+	@Mock
+	private PasswordEncoder passwordEncoder;
+
+	@Mock
+	private BCryptStrengthCalibrator strengthCalibrator;
+
+	@Mock
+	private UserRepository userRepository;
+
+	@Mock
+	private UserCache userCache;
+
+	@InjectMocks
+	private PasswordRehashService passwordRehashService;
+
+	@Test
+	@DisplayName("Detect a hash produced with another cost")
+	void testNeedsRehash() {
+		when(strengthCalibrator.hasCurrentStrength(OLD_HASH)).thenReturn(false);
+
+		assertTrue(passwordRehashService.needsRehash(OLD_HASH));
+		assertFalse(passwordRehashService.needsRehash(null));
+	}
+
+	@Test
+	@DisplayName("Replace the verified hash and invalidate the cached user")
+	void testRehash() {
+		when(passwordEncoder.encode("password")).thenReturn("$2a$12$new");
+		when(userRepository.updatePassword(1L, OLD_HASH, "$2a$12$new")).thenReturn(1);
+
+		passwordRehashService.rehash(1L, OLD_HASH, "password");
+
+		verify(userRepository, times(1)).updatePassword(1L, OLD_HASH, "$2a$12$new");
+		verify(userCache, times(1)).invalidate(1L);
+	}
+
+	@Test
+	@DisplayName("Skip the rehash when the hashing pool is full")
+	void testRehash_poolFull() {
+		when(passwordEncoder.encode("password")).thenThrow(new ServiceUnavailableException(1));
+
+		assertDoesNotThrow(() -> passwordRehashService.rehash(1L, OLD_HASH, "password"));
+
+		verify(userRepository, never()).updatePassword(any(), any(), any());
+		verify(userCache, never()).invalidate(any());
+	}
+}
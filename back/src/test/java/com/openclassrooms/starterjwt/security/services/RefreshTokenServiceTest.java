@@ -0,0 +1,87 @@
+package com.openclassrooms.starterjwt.security.services;
+
+import com.openclassrooms.starterjwt.models.RefreshToken;
+import com.openclassrooms.starterjwt.repository.RefreshTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ *  Classe de test unitaire pour {@link RefreshTokenService}.
+ *<p>
+ *     Scénarios testés:
+ *     <ul>
+ *         <li>Création d'un refresh token stocké uniquement sous forme de hash</li>
+ *         <li>Échange d'un refresh token valide</li>
+ *         <li>Rejet d'un refresh token expiré, inconnu ou déjà échangé</li>
+ *     </ul>
+ *</p>
+ */
+@ExtendWith(MockitoExtension.class)
+class RefreshTokenServiceTest {
+
+	@Mock
+	private RefreshTokenRepository refreshTokenRepository;
+
+	private RefreshTokenService refreshTokenService;
+
+	@BeforeEach
+	void setUp() {
+		refreshTokenService = new RefreshTokenService(refreshTokenRepository, 60000L);
+	}
+
+	@Test
+	@DisplayName("Store only the hash of a new refresh token")
+	void testCreate() {
+		String token = refreshTokenService.create(1L);
+
+		ArgumentCaptor<RefreshToken> captor = ArgumentCaptor.forClass(RefreshToken.class);
+		verify(refreshTokenRepository).save(captor.capture());
+		RefreshToken stored = captor.getValue();
+
+		assertEquals(1L, stored.getUserId());
+		assertNotEquals(token, stored.getTokenHash());
+		assertEquals(RefreshTokenService.hash(token), stored.getTokenHash());
+		assertEquals(64, stored.getTokenHash().length());
+		assertTrue(stored.getExpiresAt().isAfter(Instant.now()));
+	}
+
+	@Test
+	@DisplayName("Exchange a valid refresh token once")
+	void testConsume_Success() {
+		RefreshToken stored = RefreshToken.builder().id(5L).userId(1L)
+				.tokenHash(RefreshTokenService.hash("token"))
+				.expiresAt(Instant.now().plusSeconds(60)).build();
+		when(refreshTokenRepository.findByTokenHash(RefreshTokenService.hash("token"))).thenReturn(Optional.of(stored));
+		when(refreshTokenRepository.deleteOne(5L)).thenReturn(1, 0);
+
+		assertEquals(Optional.of(1L), refreshTokenService.consume("token"));
+		assertEquals(Optional.empty(), refreshTokenService.consume("token"));
+	}
+
+	@Test
+	@DisplayName("Reject an expired or unknown refresh token")
+	void testConsume_Rejected() {
+		RefreshToken expired = RefreshToken.builder().id(6L).userId(1L)
+				.tokenHash(RefreshTokenService.hash("expired"))
+				.expiresAt(Instant.now().minusSeconds(60)).build();
+		when(refreshTokenRepository.findByTokenHash(RefreshTokenService.hash("expired"))).thenReturn(Optional.of(expired));
+		when(refreshTokenRepository.deleteOne(6L)).thenReturn(1);
+		when(refreshTokenRepository.findByTokenHash(RefreshTokenService.hash("unknown"))).thenReturn(Optional.empty());
+
+		assertEquals(Optional.empty(), refreshTokenService.consume("expired"));
+		assertEquals(Optional.empty(), refreshTokenService.consume("unknown"));
+		verify(refreshTokenRepository, never()).save(any());
+	}
+}
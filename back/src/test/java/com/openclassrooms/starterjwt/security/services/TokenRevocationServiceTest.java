@@ -0,0 +1,95 @@
+package com.openclassrooms.starterjwt.security.services;
+
+import com.openclassrooms.starterjwt.models.RevokedToken;
+import com.openclassrooms.starterjwt.repository.RevokedTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ *  Classe de test unitaire pour {@link TokenRevocationService}.
+ *<p>
+ *     Scénarios testés:
+ *     <ul>
+ *         <li>Révocation persistée et visible immédiatement</li>
+ *         <li>Tokens non révoqués ou sans identifiant acceptés</li>
+ *         <li>Révocation ignorée pour un token déjà expiré</li>
+ *         <li>Purge des révocations expirées et rechargement depuis la base</li>
+ *     </ul>
+ *</p>
+ */
+@ExtendWith(MockitoExtension.class)
+class TokenRevocationServiceTest {
+
+	@Mock
+	private RevokedTokenRepository revokedTokenRepository;
+
+	private TokenRevocationService tokenRevocationService;
+
+	@BeforeEach
+	void setUp() {
+		tokenRevocationService = new TokenRevocationService(revokedTokenRepository, 1024);
+	}
+
+	@Test
+	@DisplayName("Persist a revocation and reject the token immediately")
+	void testRevoke() {
+		Instant expiresAt = Instant.now().plusSeconds(60);
+
+		tokenRevocationService.revoke("revoked-jti", expiresAt);
+
+		ArgumentCaptor<RevokedToken> captor = ArgumentCaptor.forClass(RevokedToken.class);
+		verify(revokedTokenRepository).save(captor.capture());
+		assertEquals("revoked-jti", captor.getValue().getJti());
+		assertEquals(expiresAt, captor.getValue().getExpiresAt());
+		assertTrue(tokenRevocationService.isRevoked("revoked-jti"));
+	}
+
+	@Test
+	@DisplayName("Accept tokens that were not revoked or carry no id")
+	void testIsRevoked_NotRevoked() {
+		tokenRevocationService.revoke("revoked-jti", Instant.now().plusSeconds(60));
+
+		for (int i = 0; i < 1000; i++) {
+			assertFalse(tokenRevocationService.isRevoked(UUID.randomUUID().toString()));
+		}
+		assertFalse(tokenRevocationService.isRevoked(null));
+	}
+
+	@Test
+	@DisplayName("Ignore the revocation of an already expired token")
+	void testRevoke_AlreadyExpired() {
+		tokenRevocationService.revoke("expired-jti", Instant.now().minusSeconds(1));
+
+		verify(revokedTokenRepository, never()).save(any());
+		assertFalse(tokenRevocationService.isRevoked("expired-jti"));
+	}
+
+	@Test
+	@DisplayName("Drop expired revocations and reload persisted ones when pruning")
+	void testPrune() throws Exception {
+		tokenRevocationService.revoke("short-lived-jti", Instant.now().plusMillis(20));
+		when(revokedTokenRepository.findByExpiresAtAfter(any())).thenReturn(Collections.singletonList(
+				RevokedToken.builder().jti("other-instance-jti").expiresAt(Instant.now().plusSeconds(60)).build()));
+
+		Thread.sleep(50);
+		tokenRevocationService.prune();
+
+		verify(revokedTokenRepository).deleteExpired(any());
+		assertFalse(tokenRevocationService.isRevoked("short-lived-jti"));
+		assertTrue(tokenRevocationService.isRevoked("other-instance-jti"));
+		assertEquals(1, tokenRevocationService.size());
+	}
+}
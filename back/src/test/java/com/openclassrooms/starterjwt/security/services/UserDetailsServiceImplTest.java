@@ -1,7 +1,6 @@
 package com.openclassrooms.starterjwt.security.services;
 import com.openclassrooms.starterjwt.models.User;
-import com.openclassrooms.starterjwt.repository.UserRepository;
-import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
+import com.openclassrooms.starterjwt.services.UserCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -31,7 +30,7 @@ import static org.mockito.Mockito.when;
 class UserDetailsServiceImplTest {
 
 	@Mock
-	private UserRepository userRepository;
+	private UserCache userCache;
 
 	@InjectMocks
 	private UserDetailsServiceImpl userDetailsService;
@@ -51,7 +50,7 @@ class UserDetailsServiceImplTest {
 	@Test
 	@DisplayName("Load user by username successfully")
 	void testLoadUserByUsername_success() {
-		when(userRepository.findByEmail("john.doe@example.com")).thenReturn(Optional.of(user));
+		when(userCache.findByEmail("john.doe@example.com")).thenReturn(Optional.of(user));
 
 		UserDetails userDetails = userDetailsService.loadUserByUsername("john.doe@example.com");
 
@@ -65,7 +64,7 @@ class UserDetailsServiceImplTest {
 	@Test
 	@DisplayName("Throw exception when user not found")
 	void testLoadUserByUsername_userNotFound() {
-		when(userRepository.findByEmail("jane.doe@example.com")).thenReturn(Optional.empty());
+		when(userCache.findByEmail("jane.doe@example.com")).thenReturn(Optional.empty());
 
 		UsernameNotFoundException exception = assertThrows(UsernameNotFoundException.class, () -> {
 			userDetailsService.loadUserByUsername("jane.doe@example.com");
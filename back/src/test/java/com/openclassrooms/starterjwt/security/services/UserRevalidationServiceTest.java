@@ -0,0 +1,71 @@
+package com.openclassrooms.starterjwt.security.services;
+
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.services.UserCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ *  Classe de test unitaire pour {@link UserRevalidationService}.
+ *<p>
+ *     Scénarios testés:
+ *     <ul>
+ *         <li>Une seule requête en base par utilisateur pendant l'intervalle</li>
+ *         <li>Rejet d'un utilisateur supprimé</li>
+ *         <li>Nouvelle vérification après invalidation</li>
+ *     </ul>
+ *</p>
+ */
+@ExtendWith(MockitoExtension.class)
+class UserRevalidationServiceTest {
+
+	@Mock
+	private UserCache userCache;
+
+	private UserRevalidationService userRevalidationService;
+
+	@BeforeEach
+	void setUp() {
+		userRevalidationService = new UserRevalidationService(userCache, 60000L, 100);
+	}
+
+	@Test
+	@DisplayName("Query the database once per user within the revalidation interval")
+	void testIsStillActive_cached() {
+		when(userCache.findById(1L)).thenReturn(Optional.of(new User()));
+
+		assertTrue(userRevalidationService.isStillActive(1L));
+		assertTrue(userRevalidationService.isStillActive(1L));
+
+		verify(userCache, times(1)).findById(1L);
+	}
+
+	@Test
+	@DisplayName("Reject a user that no longer exists")
+	void testIsStillActive_deletedUser() {
+		when(userCache.findById(2L)).thenReturn(Optional.empty());
+
+		assertFalse(userRevalidationService.isStillActive(2L));
+	}
+
+	@Test
+	@DisplayName("Check the database again after invalidation")
+	void testInvalidate() {
+		when(userCache.findById(3L)).thenReturn(Optional.of(new User()), Optional.empty());
+
+		assertTrue(userRevalidationService.isStillActive(3L));
+		userRevalidationService.invalidate(3L);
+		assertFalse(userRevalidationService.isStillActive(3L));
+
+		verify(userCache, times(2)).findById(3L);
+	}
+}
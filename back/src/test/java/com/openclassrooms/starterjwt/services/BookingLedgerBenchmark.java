@@ -0,0 +1,105 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark JMH du débit de réservation : chemin synchrone (une transaction par réservation,
+ * mêmes requêtes que {@link SessionService#participate(Long, Long)}) contre {@link BookingLedger}.
+ * <p>
+ *     La base H2 est en mémoire, sans aller-retour réseau : l'écart est plus grand face à MySQL.
+ *     Le journal est synchronisé sur disque avant chaque acquittement, par groupe, et vidé toutes les 100 ms.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class BookingLedgerBenchmark {
+
+	private static final int SESSIONS = 64;
+
+	private final AtomicLong nextUser = new AtomicLong();
+
+	private HikariDataSource dataSource;
+	private JdbcTemplate jdbcTemplate;
+	private TransactionTemplate transactionTemplate;
+	private Path journalDir;
+	private BookingLedger ledger;
+	private ScheduledExecutorService flusher;
+
+	@Setup
+	public void setUp() throws IOException {
+		dataSource = new HikariDataSource();
+		dataSource.setJdbcUrl("jdbc:h2:mem:booking;MODE=MYSQL;DB_CLOSE_DELAY=-1");
+		dataSource.setMaximumPoolSize(16);
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+		transactionTemplate = new TransactionTemplate(transactionManager);
+
+		// Schéma réduit aux colonnes utilisées par la réservation, sans clés étrangères
+		jdbcTemplate.execute("create table SESSIONS (id INT primary key, capacity INT, seats_taken INT not null default 0)");
+		jdbcTemplate.execute("create table PARTICIPATE (user_id INT not null, session_id INT not null)");
+		jdbcTemplate.execute("create unique index idx_participate_session_user on PARTICIPATE (session_id, user_id)");
+		for (int id = 1; id <= SESSIONS; id++) {
+			jdbcTemplate.update("insert into SESSIONS (id) values (?)", id);
+		}
+
+		journalDir = Files.createTempDirectory("booking-journal");
+		ledger = new BookingLedger(jdbcTemplate, transactionManager, new ResourceVersions(), new SessionEvents(), "ledger", journalDir.toString(), true, 500);
+		flusher = Executors.newSingleThreadScheduledExecutor();
+		flusher.scheduleWithFixedDelay(ledger::flush, 100, 100, TimeUnit.MILLISECONDS);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		flusher.shutdownNow();
+		ledger.close();
+		jdbcTemplate.execute("shutdown");
+		dataSource.close();
+		try (Stream<Path> files = Files.walk(journalDir)) {
+			files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+		}
+	}
+
+	@Benchmark
+	public int synchronous() {
+		long user = nextUser.incrementAndGet();
+		long session = user % SESSIONS + 1;
+		return transactionTemplate.execute(status -> {
+			jdbcTemplate.update("update SESSIONS set seats_taken = seats_taken + 1 where id = ? and (capacity is null or seats_taken < capacity)", session);
+			return jdbcTemplate.update("insert into PARTICIPATE (session_id, user_id) values (?, ?)", session, user);
+		});
+	}
+
+	@Benchmark
+	public BookingLedger.Result ledger() {
+		long user = nextUser.incrementAndGet();
+		return ledger.book(user % SESSIONS + 1, user);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+				.include(BookingLedgerBenchmark.class.getSimpleName())
+				.build()).run();
+	}
+}
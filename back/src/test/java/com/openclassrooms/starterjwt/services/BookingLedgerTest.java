@@ -0,0 +1,240 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.exception.NotFoundException;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.services.BookingLedger.Result;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe de test d'intégration pour {@link BookingLedger}.
+ * <p>
+ *     Scénarios testés :
+ *     <ul>
+ *         <li>Réservations acquittées en mémoire puis écrites par lot, capacité et unicité respectées</li>
+ *         <li>Reprise après arrêt brutal à partir du journal</li>
+ *         <li>Rejeu du journal sans double réservation</li>
+ *         <li>Écritures concurrentes du journal, synchronisées par groupe, pendant les rotations</li>
+ *         <li>Écriture d'une réservation en attente avant sa désinscription</li>
+ *         <li>Réservation d'une session supprimée ignorée sans bloquer les autres</li>
+ *         <li>Session inexistante</li>
+ *         <li>Mode synchrone : registre désactivé</li>
+ *     </ul>
+ * </p>
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class BookingLedgerTest {
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private TeacherRepository teacherRepository;
+
+	@Autowired
+	private SessionRepository sessionRepository;
+
+	@TempDir
+	Path journalDir;
+
+	private Long sessionId;
+	private List<Long> userIds;
+
+	@BeforeEach
+	void setUp() {
+		Teacher teacher = teacherRepository.save(Teacher.builder().firstName("Ledger").lastName("Test").build());
+		sessionId = createSession(teacher, 2);
+		for (int i = 0; i < 3; i++) {
+			jdbcTemplate.update("insert into USERS (email, first_name, last_name, password, admin) values (?, 'ledger', ?, 'password', false)",
+					"ledger" + i + "@example.com", String.valueOf(i));
+		}
+		userIds = jdbcTemplate.queryForList("select id from USERS where email like 'ledger%' order by id", Long.class);
+	}
+
+	@AfterEach
+	void cleanUp() {
+		jdbcTemplate.update("delete from PARTICIPATE");
+		sessionRepository.deleteAll();
+		jdbcTemplate.update("delete from USERS where email like 'ledger%'");
+	}
+
+	@Test
+	@DisplayName("Bookings are acknowledged in memory and written in a batch")
+	void testBook_FlushedInBatch() {
+		BookingLedger ledger = ledger();
+
+		assertEquals(Result.BOOKED, ledger.book(sessionId, userIds.get(0)));
+		assertEquals(Result.BOOKED, ledger.book(sessionId, userIds.get(1)));
+		assertEquals(Result.FULL, ledger.book(sessionId, userIds.get(2)));
+		assertEquals(Result.DUPLICATE, ledger.book(sessionId, userIds.get(0)));
+		assertEquals(0, participants());
+
+		assertEquals(2, ledger.flush());
+		assertEquals(2, participants());
+		assertEquals(2, seatsTaken());
+		assertEquals(0, ledger.flush());
+	}
+
+	@Test
+	@DisplayName("Bookings journaled before a crash are written on the next start")
+	void testFlush_RecoversJournal() {
+		BookingLedger crashed = ledger();
+		crashed.book(sessionId, userIds.get(0));
+
+		BookingLedger restarted = ledger();
+		// La session est relue après la reprise du journal : la place est déjà prise
+		assertEquals(Result.DUPLICATE, restarted.book(sessionId, userIds.get(0)));
+		assertEquals(1, participants());
+		assertEquals(1, seatsTaken());
+	}
+
+	@Test
+	@DisplayName("Replaying the journal never books a user twice")
+	void testFlush_ReplayIsIdempotent() throws Exception {
+		try (BookingJournal journal = new BookingJournal(journalDir, true)) {
+			journal.append(sessionId, userIds.get(0));
+			journal.append(sessionId, userIds.get(0));
+		}
+
+		// Le journal est rejoué dès la construction du registre
+		BookingLedger ledger = ledger();
+		assertEquals(1, participants());
+		assertEquals(0, ledger.flush());
+		assertEquals(1, seatsTaken());
+	}
+
+	@Test
+	@DisplayName("Concurrent appends are all journaled while segments rotate")
+	void testJournal_GroupCommit() throws Exception {
+		int threads = 8;
+		int appends = 200;
+		List<long[]> records = new ArrayList<>();
+		try (BookingJournal journal = new BookingJournal(journalDir, true)) {
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			List<Future<?>> writers = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				long session = t;
+				writers.add(executor.submit(() -> {
+					for (int i = 0; i < appends; i++) {
+						journal.append(session, i);
+					}
+					return null;
+				}));
+			}
+			// Le vidage fait tourner les segments pendant les écritures
+			while (!writers.stream().allMatch(Future::isDone)) {
+				for (Path segment : journal.rotate()) {
+					records.addAll(BookingJournal.read(segment));
+					journal.delete(segment);
+				}
+			}
+			executor.shutdown();
+			for (Future<?> writer : writers) {
+				writer.get();
+			}
+			for (Path segment : journal.rotate()) {
+				records.addAll(BookingJournal.read(segment));
+			}
+		}
+
+		assertEquals(threads * appends, records.size());
+		for (int t = 0; t < threads; t++) {
+			long session = t;
+			assertEquals(appends, records.stream().filter(record -> record[0] == session).mapToLong(record -> record[1]).distinct().count());
+		}
+	}
+
+	@Test
+	@DisplayName("A pending booking is written before it is removed")
+	void testFlushBooking_WritesPending() {
+		BookingLedger ledger = ledger();
+		ledger.book(sessionId, userIds.get(0));
+
+		ledger.flushBooking(sessionId, userIds.get(1));
+		assertEquals(0, participants());
+
+		ledger.flushBooking(sessionId, userIds.get(0));
+		assertEquals(1, participants());
+		assertEquals(1, seatsTaken());
+	}
+
+	@Test
+	@DisplayName("A booking of a deleted session is dropped without blocking the others")
+	void testFlush_DropsDeletedSession() {
+		Long otherId = createSession(teacherRepository.findAll().get(0), null);
+		BookingLedger ledger = ledger();
+		ledger.book(sessionId, userIds.get(0));
+		ledger.book(otherId, userIds.get(0));
+
+		sessionRepository.deleteById(sessionId);
+		ledger.evict(sessionId);
+
+		assertEquals(1, ledger.flush());
+		assertEquals(1, participants());
+		assertEquals(0, ledger.flush());
+	}
+
+	@Test
+	@DisplayName("Booking a missing session throws NotFoundException")
+	void testBook_SessionNotFound() {
+		assertThrows(NotFoundException.class, () -> ledger().book(-1L, userIds.get(0)));
+	}
+
+	@Test
+	@DisplayName("The ledger is disabled in sync mode")
+	void testSyncMode_Disabled() {
+		BookingLedger ledger = new BookingLedger(jdbcTemplate, transactionManager, new ResourceVersions(), new SessionEvents(), "sync", journalDir.toString(), true, 500);
+
+		assertFalse(ledger.isEnabled());
+		assertEquals(0, ledger.flush());
+	}
+
+	private BookingLedger ledger() {
+		return new BookingLedger(jdbcTemplate, transactionManager, new ResourceVersions(), new SessionEvents(), "ledger", journalDir.toString(), true, 500);
+	}
+
+	private Long createSession(Teacher teacher, Integer capacity) {
+		return sessionRepository.save(Session.builder()
+				.name("Ledger")
+				.description("Write-behind booking")
+				.date(new Date())
+				.teacher(teacher)
+				.capacity(capacity)
+				.build()).getId();
+	}
+
+	private int participants() {
+		return jdbcTemplate.queryForObject("select count(*) from PARTICIPATE", Integer.class);
+	}
+
+	private int seatsTaken() {
+		return jdbcTemplate.queryForObject("select seats_taken from SESSIONS where id = ?", Integer.class, sessionId);
+	}
+}
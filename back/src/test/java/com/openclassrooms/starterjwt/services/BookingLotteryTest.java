@@ -0,0 +1,284 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.exception.ServiceUnavailableException;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe de test d'intégration pour {@link BookingLottery}.
+ * <p>
+ *     Scénarios testés :
+ *     <ul>
+ *         <li>Session sans tirage au sort : réservation directe</li>
+ *         <li>Tirage à la fermeture de la fenêtre : places attribuées, perdants en liste d'attente, inscrits existants ignorés</li>
+ *         <li>Aucun tirage avant la fermeture, aucune inscription après</li>
+ *         <li>Entre la fermeture et le tirage : aucune réservation possible, même pendant l'allocation</li>
+ *         <li>Nombre maximal de demandes atteint : service indisponible</li>
+ *         <li>Tirage en échec : les demandes arrivées pendant l'allocation sont tirées avec les autres au tirage suivant</li>
+ *         <li>Erreur inattendue pendant le tirage : les demandes sont conservées et les autres sessions tirées</li>
+ *     </ul>
+ * </p>
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class BookingLotteryTest {
+
+	private static final long OPENS_AT = 1_000_000;
+	private static final long WINDOW_MS = 60_000;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private TeacherRepository teacherRepository;
+
+	@Autowired
+	private SessionRepository sessionRepository;
+
+	@Autowired
+	private BookingLedger bookingLedger;
+
+	@Autowired
+	private ResourceVersions resourceVersions;
+
+	@Autowired
+	private SessionEvents sessionEvents;
+
+	private final AtomicLong clock = new AtomicLong(OPENS_AT);
+
+	private Teacher teacher;
+	private List<Long> userIds;
+
+	@BeforeEach
+	void setUp() {
+		teacher = teacherRepository.save(Teacher.builder().firstName("Lottery").lastName("Test").build());
+		for (int i = 0; i < 10; i++) {
+			jdbcTemplate.update("insert into USERS (email, first_name, last_name, password, admin) values (?, 'lottery', ?, 'password', false)",
+					"lottery" + i + "@example.com", String.valueOf(i));
+		}
+		userIds = jdbcTemplate.queryForList("select id from USERS where email like 'lottery%' order by id", Long.class);
+	}
+
+	@AfterEach
+	void cleanUp() {
+		jdbcTemplate.update("delete from WAITLIST");
+		jdbcTemplate.update("delete from PARTICIPATE");
+		sessionRepository.deleteAll();
+		jdbcTemplate.update("delete from USERS where email like 'lottery%'");
+	}
+
+	@Test
+	@DisplayName("Sessions without a lottery are booked directly")
+	void testEnter_NoLottery() {
+		Long sessionId = createSession(false, 4);
+
+		assertNull(lottery(100).enterIfOpen(sessionId, userIds.get(0)));
+	}
+
+	@Test
+	@DisplayName("The draw books the winners and waitlists the others")
+	void testDraw_AllocatesSeats() {
+		Long sessionId = createSession(true, 4);
+		// Déjà inscrit avant le tirage : il garde sa place sans en prendre une seconde
+		jdbcTemplate.update("insert into PARTICIPATE (session_id, user_id) values (?, ?)", sessionId, userIds.get(0));
+		jdbcTemplate.update("update SESSIONS set seats_taken = 1 where id = ?", sessionId);
+
+		BookingLottery lottery = lottery(100);
+		for (Long userId : userIds) {
+			assertEquals(new Date(OPENS_AT + WINDOW_MS), lottery.enterIfOpen(sessionId, userId));
+			lottery.enterIfOpen(sessionId, userId);
+		}
+
+		clock.set(OPENS_AT + WINDOW_MS);
+		assertEquals(1, lottery.draw());
+
+		List<Long> participants = jdbcTemplate.queryForList("select user_id from PARTICIPATE where session_id = ?", Long.class, sessionId);
+		List<Long> waitlisted = jdbcTemplate.queryForList("select user_id from WAITLIST where session_id = ? order by id", Long.class, sessionId);
+		assertEquals(4, participants.size());
+		assertTrue(participants.contains(userIds.get(0)));
+		assertEquals(4, jdbcTemplate.queryForObject("select seats_taken from SESSIONS where id = ?", Integer.class, sessionId));
+		assertEquals(6, waitlisted.size());
+
+		Set<Long> everyone = new HashSet<>(participants);
+		everyone.addAll(waitlisted);
+		assertEquals(new HashSet<>(userIds), everyone);
+		assertEquals(0, lottery.draw());
+	}
+
+	@Test
+	@DisplayName("Nothing is drawn before the window closes, nobody enters after")
+	void testDraw_WindowBoundaries() {
+		Long sessionId = createSession(true, 4);
+		BookingLottery lottery = lottery(100);
+		lottery.enterIfOpen(sessionId, userIds.get(0));
+
+		clock.set(OPENS_AT + WINDOW_MS - 1);
+		assertEquals(0, lottery.draw());
+		assertEquals(0, jdbcTemplate.queryForObject("select count(*) from PARTICIPATE", Integer.class));
+
+		clock.set(OPENS_AT + WINDOW_MS);
+		assertEquals(1, lottery.draw());
+		assertEquals(1, jdbcTemplate.queryForObject("select count(*) from PARTICIPATE", Integer.class));
+		assertNull(lottery.enterIfOpen(sessionId, userIds.get(1)));
+	}
+
+	@Test
+	@DisplayName("Nobody books between the end of the window and the committed draw")
+	void testEnter_BetweenWindowAndDraw() {
+		Long sessionId = createSession(true, 1);
+		AtomicReference<BookingLottery> lottery = new AtomicReference<>();
+		AtomicBoolean refusedDuringDraw = new AtomicBoolean();
+		lottery.set(lottery(100, failingOnce(() -> refusedDuringDraw.set(refused(lottery.get(), sessionId, userIds.get(2))),
+				new CannotCreateTransactionException("connection refused"))));
+		lottery.get().enterIfOpen(sessionId, userIds.get(0));
+
+		// Fenêtre fermée, tirage pas encore fait : le retardataire ne passe pas
+		clock.set(OPENS_AT + WINDOW_MS);
+		assertTrue(refused(lottery.get(), sessionId, userIds.get(1)));
+
+		// Tirage en cours puis en échec : toujours refusé
+		assertEquals(0, lottery.get().draw());
+		assertTrue(refusedDuringDraw.get());
+		assertTrue(refused(lottery.get(), sessionId, userIds.get(1)));
+
+		assertEquals(1, lottery.get().draw());
+		assertNull(lottery.get().enterIfOpen(sessionId, userIds.get(1)));
+		assertEquals(List.of(userIds.get(0)),
+				jdbcTemplate.queryForList("select user_id from PARTICIPATE where session_id = ?", Long.class, sessionId));
+	}
+
+	@Test
+	@DisplayName("Entries beyond the maximum are refused")
+	void testEnter_MaxEntries() {
+		Long sessionId = createSession(true, 4);
+		BookingLottery lottery = lottery(2);
+		lottery.enterIfOpen(sessionId, userIds.get(0));
+		lottery.enterIfOpen(sessionId, userIds.get(1));
+
+		assertNotNull(lottery.enterIfOpen(sessionId, userIds.get(1)));
+		assertThrows(ServiceUnavailableException.class, () -> lottery.enterIfOpen(sessionId, userIds.get(2)));
+	}
+
+	@Test
+	@DisplayName("Entries made while a draw fails are drawn with the others on the next run")
+	void testDraw_FailureKeepsConcurrentEntries() {
+		Long sessionId = createSession(true, 4);
+		AtomicReference<BookingLottery> lottery = new AtomicReference<>();
+		lottery.set(lottery(100, failingOnce(() -> {
+			// Demande acceptée juste avant la fermeture, enregistrée une fois le tirage retiré
+			clock.set(OPENS_AT + WINDOW_MS - 1);
+			lottery.get().enterIfOpen(sessionId, userIds.get(1));
+			clock.set(OPENS_AT + WINDOW_MS);
+		}, new CannotCreateTransactionException("connection refused"))));
+		lottery.get().enterIfOpen(sessionId, userIds.get(0));
+
+		clock.set(OPENS_AT + WINDOW_MS);
+		assertEquals(0, lottery.get().draw());
+		assertEquals(1, lottery.get().draw());
+
+		List<Long> participants = jdbcTemplate.queryForList("select user_id from PARTICIPATE where session_id = ?", Long.class, sessionId);
+		assertEquals(new HashSet<>(userIds.subList(0, 2)), new HashSet<>(participants));
+	}
+
+	@Test
+	@DisplayName("An unexpected failure keeps the entrants and the other sessions are still drawn")
+	void testDraw_UnexpectedFailure() {
+		Long first = createSession(true, 4);
+		Long second = createSession(true, 4);
+		BookingLottery lottery = lottery(100, failingOnce(() -> { }, new IllegalStateException("unexpected")));
+		lottery.enterIfOpen(first, userIds.get(0));
+		lottery.enterIfOpen(second, userIds.get(1));
+
+		clock.set(OPENS_AT + WINDOW_MS);
+		assertEquals(1, lottery.draw());
+		assertEquals(1, lottery.draw());
+
+		assertEquals(2, jdbcTemplate.queryForObject("select count(*) from PARTICIPATE where session_id in (?, ?)",
+				Integer.class, first, second));
+	}
+
+	private static boolean refused(BookingLottery lottery, Long sessionId, Long userId) {
+		try {
+			lottery.enterIfOpen(sessionId, userId);
+			return false;
+		} catch (ServiceUnavailableException e) {
+			return true;
+		}
+	}
+
+	// Le premier tirage exécute l'action pendant l'allocation puis échoue avec l'erreur donnée
+	private PlatformTransactionManager failingOnce(Runnable during, RuntimeException failure) {
+		AtomicBoolean failed = new AtomicBoolean();
+		return new PlatformTransactionManager() {
+			@Override
+			public TransactionStatus getTransaction(TransactionDefinition definition) {
+				if (failed.compareAndSet(false, true)) {
+					during.run();
+					throw failure;
+				}
+				return transactionManager.getTransaction(definition);
+			}
+
+			@Override
+			public void commit(TransactionStatus status) {
+				transactionManager.commit(status);
+			}
+
+			@Override
+			public void rollback(TransactionStatus status) {
+				transactionManager.rollback(status);
+			}
+		};
+	}
+
+	private BookingLottery lottery(int maxEntries) {
+		return lottery(maxEntries, transactionManager);
+	}
+
+	private BookingLottery lottery(int maxEntries, PlatformTransactionManager transactionManager) {
+		return new BookingLottery(jdbcTemplate, transactionManager, sessionRepository, bookingLedger, resourceVersions,
+				sessionEvents, new SimpleMeterRegistry(), WINDOW_MS, maxEntries, 0, clock::get);
+	}
+
+	private Long createSession(boolean lottery, Integer capacity) {
+		return sessionRepository.save(Session.builder()
+				.name("Lottery")
+				.description("Oversubscribed class")
+				.date(new Date())
+				.teacher(teacher)
+				.capacity(capacity)
+				.bookingOpensAt(new Date(OPENS_AT))
+				.lottery(lottery)
+				.build()).getId();
+	}
+}
@@ -0,0 +1,99 @@
+package com.openclassrooms.starterjwt.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *  Classe de test unitaire pour {@link ResourceVersions}.
+ *<p>
+ *     Scénarios testés:
+ *     <ul>
+ *         <li>Une modification de session change son ETag et celui de la liste, pas ceux des autres sessions</li>
+ *         <li>Une modification d'enseignant ne change que l'ETag des enseignants</li>
+ *         <li>Dans une transaction, la version change seulement après le commit</li>
+ *         <li>Une transaction annulée ne change pas la version</li>
+ *         <li>ETags forts, différents d'une instance à l'autre</li>
+ *     </ul>
+ *</p>
+ */
+class ResourceVersionsTest {
+
+	private final ResourceVersions resourceVersions = new ResourceVersions();
+
+	@AfterEach
+	void cleanUp() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	@Test
+	@DisplayName("A session change moves its tag and the list tag only")
+	void testSessionChanged() {
+		String list = resourceVersions.sessionsTag();
+		String one = resourceVersions.sessionTag(1L);
+		String two = resourceVersions.sessionTag(2L);
+		String teachers = resourceVersions.teachersTag();
+
+		resourceVersions.sessionChanged(1L);
+
+		assertNotEquals(list, resourceVersions.sessionsTag());
+		assertNotEquals(one, resourceVersions.sessionTag(1L));
+		assertEquals(two, resourceVersions.sessionTag(2L));
+		assertEquals(teachers, resourceVersions.teachersTag());
+	}
+
+	@Test
+	@DisplayName("A teacher change moves the teachers tag only")
+	void testTeachersChanged() {
+		String list = resourceVersions.sessionsTag();
+		String teachers = resourceVersions.teachersTag();
+
+		resourceVersions.teachersChanged();
+
+		assertNotEquals(teachers, resourceVersions.teachersTag());
+		assertEquals(list, resourceVersions.sessionsTag());
+	}
+
+	@Test
+	@DisplayName("Inside a transaction the version moves after the commit")
+	void testSessionChanged_AfterCommit() {
+		String tag = resourceVersions.sessionTag(1L);
+		TransactionSynchronizationManager.initSynchronization();
+
+		resourceVersions.sessionChanged(1L);
+		assertEquals(tag, resourceVersions.sessionTag(1L));
+
+		TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+		assertNotEquals(tag, resourceVersions.sessionTag(1L));
+	}
+
+	@Test
+	@DisplayName("A rolled back transaction leaves the version unchanged")
+	void testSessionChanged_Rollback() {
+		String tag = resourceVersions.sessionTag(1L);
+		TransactionSynchronizationManager.initSynchronization();
+
+		resourceVersions.sessionChanged(1L);
+		TransactionSynchronizationManager.getSynchronizations()
+				.forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+		assertEquals(tag, resourceVersions.sessionTag(1L));
+	}
+
+	@Test
+	@DisplayName("Tags are strong and differ between instances")
+	void testTags_StrongAndPerInstance() {
+		String tag = resourceVersions.sessionsTag();
+
+		assertTrue(tag.startsWith("\"") && tag.endsWith("\""));
+		assertNotEquals(tag, new ResourceVersions().sessionsTag());
+	}
+}
@@ -0,0 +1,100 @@
+package com.openclassrooms.starterjwt.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *  Classe de test unitaire pour {@link SessionEvents}.
+ *<p>
+ *     Scénarios testés:
+ *     <ul>
+ *         <li>Hors transaction, l'événement est publié immédiatement avec un numéro croissant</li>
+ *         <li>Dans une transaction, l'événement est publié seulement après le commit</li>
+ *         <li>Une transaction annulée ne publie rien</li>
+ *         <li>Un abonné en erreur n'empêche pas la publication aux autres</li>
+ *     </ul>
+ *</p>
+ */
+class SessionEventsTest {
+
+	private SessionEvents sessionEvents;
+
+	private List<SessionEvent> received;
+
+	@BeforeEach
+	void setUp() {
+		sessionEvents = new SessionEvents();
+		received = new ArrayList<>();
+		sessionEvents.subscribe(received::add);
+	}
+
+	@AfterEach
+	void cleanUp() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	@Test
+	@DisplayName("Outside a transaction events are published right away, in order")
+	void testPublish_NoTransaction() {
+		sessionEvents.created(1L);
+		sessionEvents.participantAdded(1L, 2L);
+
+		assertEquals(2, received.size());
+		assertEquals(SessionEvent.Type.CREATED, received.get(0).getType());
+		assertNull(received.get(0).getUserId());
+		assertEquals(SessionEvent.Type.PARTICIPANT_ADDED, received.get(1).getType());
+		assertEquals(1L, received.get(1).getSessionId());
+		assertEquals(2L, received.get(1).getUserId());
+		assertTrue(received.get(1).getId() > received.get(0).getId());
+	}
+
+	@Test
+	@DisplayName("Inside a transaction the event is published after the commit")
+	void testPublish_AfterCommit() {
+		TransactionSynchronizationManager.initSynchronization();
+
+		sessionEvents.participantRemoved(1L, 2L);
+		assertTrue(received.isEmpty());
+
+		TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+		assertEquals(1, received.size());
+		assertEquals(SessionEvent.Type.PARTICIPANT_REMOVED, received.get(0).getType());
+	}
+
+	@Test
+	@DisplayName("A rolled back transaction publishes nothing")
+	void testPublish_Rollback() {
+		TransactionSynchronizationManager.initSynchronization();
+
+		sessionEvents.deleted(1L);
+		TransactionSynchronizationManager.getSynchronizations()
+				.forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+		assertTrue(received.isEmpty());
+	}
+
+	@Test
+	@DisplayName("A failing listener does not keep the others from the event")
+	void testPublish_FailingListener() {
+		SessionEvents events = new SessionEvents();
+		List<SessionEvent> others = new ArrayList<>();
+		events.subscribe(event -> {
+			throw new IllegalStateException("listener failure");
+		});
+		events.subscribe(others::add);
+
+		assertDoesNotThrow(() -> events.updated(1L));
+		assertEquals(1, others.size());
+	}
+}
@@ -1,25 +1,37 @@
 package com.openclassrooms.starterjwt.services;
 
 import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.exception.ConflictException;
 import com.openclassrooms.starterjwt.exception.NotFoundException;
+import com.openclassrooms.starterjwt.exception.ServiceUnavailableException;
 import com.openclassrooms.starterjwt.models.Session;
-import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.models.WaitlistEntry;
 import com.openclassrooms.starterjwt.repository.SessionRepository;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.Optional;
 
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
 /**
@@ -31,6 +43,16 @@ import static org.mockito.Mockito.*;
  *         <li>Échec lorsque la session n'existe pas</li>
  *         <li>Échec lorsque l'utilisateur n'existe pas</li>
  *         <li>Échec lorsque l'utilisateur est déjà inscrit à la session</li>
+ *         <li>Mise en liste d'attente lorsque la session est complète</li>
+ *         <li>Échec lorsque l'utilisateur est déjà en liste d'attente ou déjà inscrit à une session complète</li>
+ *         <li>Sortie de la liste d'attente lors de la désinscription</li>
+ *         <li>Mode registre : réservation sans écriture immédiate, liste d'attente si complète, écriture avant désinscription hors transaction</li>
+ *         <li>Désinscription réussie, échec si la session n'existe pas ou si l'utilisateur n'est pas inscrit</li>
+ *         <li>Pagination par curseur : page suivante et dernière page</li>
+ *         <li>Rejet d'un curseur invalide</li>
+ *         <li>Mise à jour sans modifier les participants ni les places prises</li>
+ *         <li>Création sans les participants envoyés avec la session</li>
+ *         <li>Publication des événements de création, modification, suppression et inscription</li>
  *     </ul>
  * </p>
  */
@@ -43,13 +65,30 @@ class SessionServiceTest {
 	@Mock
 	private UserRepository userRepository;
 
+	@Mock
+	private WaitlistRepository waitlistRepository;
+
+	@Mock
+	private BookingLedger bookingLedger;
+
+	@Mock
+	private ResourceVersions resourceVersions;
+
+	@Mock
+	private SessionViewCache sessionViewCache;
+
+	@Mock
+	private SessionEvents sessionEvents;
+
+	@Mock
+	private PlatformTransactionManager transactionManager;
+
 	@InjectMocks
 	private SessionService sessionService;
 
 	private Long sessionId;
 	private Long userId;
 	private Session session;
-	private User user;
 
 	@BeforeEach
 	void setUp() {
@@ -58,30 +97,29 @@ class SessionServiceTest {
 
 		session = new Session();
 		session.setId(sessionId);
-		session.setUsers(new ArrayList<>());
-
-		user = new User();
-		user.setId(userId);
+		session.setUserIds(new HashSet<>());
 	}
 
 	@AfterEach
 	void cleanUp() {
-		session.setUsers(new ArrayList<>());
+		session.setUserIds(new HashSet<>());
 	}
 
 	@Test
 	@DisplayName("Should successfully add user to session")
 	void testParticipate_Success(){
 
-		when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session));
-		when(userRepository.findById(userId)).thenReturn(Optional.of(user));
-		when(sessionRepository.save(any(Session.class))).thenReturn(session);
+		when(userRepository.existsById(userId)).thenReturn(true);
+		when(sessionRepository.takeSeatAheadOfWaitlist(sessionId)).thenReturn(1);
+		when(sessionRepository.addParticipant(sessionId, userId)).thenReturn(1);
 
-		assertDoesNotThrow(() -> sessionService.participate(sessionId, userId));
+		assertEquals(BookingStatus.BOOKED, sessionService.participate(sessionId, userId));
 
 		// THEN
-		assertTrue(session.getUsers().contains(user));
-		verify(sessionRepository, times(1)).save(session);
+		verify(sessionRepository, times(1)).addParticipant(sessionId, userId);
+		verify(sessionRepository, never()).save(any(Session.class));
+		verify(sessionViewCache).invalidate(sessionId);
+		verify(sessionEvents).participantAdded(sessionId, userId);
 
 	}
 
@@ -89,31 +127,282 @@ class SessionServiceTest {
 	@DisplayName("Should throw NotFoundException when session does not exist")
 	void testParticipate_SessionNotFound() {
 
-		when(sessionRepository.findById(sessionId)).thenReturn(Optional.empty());
+		when(userRepository.existsById(userId)).thenReturn(true);
+		when(sessionRepository.takeSeatAheadOfWaitlist(sessionId)).thenReturn(0);
+		when(sessionRepository.existsById(sessionId)).thenReturn(false);
 
 		assertThrows(NotFoundException.class, () -> sessionService.participate(sessionId, userId));
+		verify(sessionRepository, never()).addParticipant(anyLong(), anyLong());
 	}
 
 	@Test
 	@DisplayName("Should throw NotFoundException when user does not exist")
 	void testParticipate_UserNotFound() {
 
-		when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session));
-		when(userRepository.findById(userId)).thenReturn(Optional.empty());
+		when(userRepository.existsById(userId)).thenReturn(false);
 
 		assertThrows(NotFoundException.class, () -> sessionService.participate(sessionId, userId));
+		verify(sessionRepository, never()).takeSeatAheadOfWaitlist(anyLong());
+		verify(sessionRepository, never()).addParticipant(anyLong(), anyLong());
+	}
+
+	@Test
+	@DisplayName("Should put the user on the waitlist when the session is full")
+	void testParticipate_SessionFull() {
+
+		when(userRepository.existsById(userId)).thenReturn(true);
+		when(sessionRepository.takeSeatAheadOfWaitlist(sessionId)).thenReturn(0);
+		when(sessionRepository.existsById(sessionId)).thenReturn(true);
+		when(sessionRepository.countParticipant(sessionId, userId)).thenReturn(0);
+
+		assertEquals(BookingStatus.WAITLISTED, sessionService.participate(sessionId, userId));
+		verify(waitlistRepository).save(argThat(entry -> entry.getSessionId().equals(sessionId)
+				&& entry.getUserId().equals(userId)));
+		verify(sessionRepository, never()).addParticipant(anyLong(), anyLong());
+	}
+
+	@Test
+	@DisplayName("Should throw ConflictException when the user is already on the waitlist")
+	void testParticipate_AlreadyWaitlisted() {
+
+		when(userRepository.existsById(userId)).thenReturn(true);
+		when(sessionRepository.takeSeatAheadOfWaitlist(sessionId)).thenReturn(0);
+		when(sessionRepository.existsById(sessionId)).thenReturn(true);
+		when(sessionRepository.countParticipant(sessionId, userId)).thenReturn(0);
+		when(waitlistRepository.save(any(WaitlistEntry.class)))
+				.thenThrow(new DataIntegrityViolationException("duplicate"));
+
+		assertThrows(ConflictException.class, () -> sessionService.participate(sessionId, userId));
+	}
+
+	@Test
+	@DisplayName("Should throw BadRequestException when a participant books a full session again")
+	void testParticipate_FullSessionAlreadyParticipates() {
+
+		when(userRepository.existsById(userId)).thenReturn(true);
+		when(sessionRepository.takeSeatAheadOfWaitlist(sessionId)).thenReturn(0);
+		when(sessionRepository.existsById(sessionId)).thenReturn(true);
+		when(sessionRepository.countParticipant(sessionId, userId)).thenReturn(1);
+
+		assertThrows(BadRequestException.class, () -> sessionService.participate(sessionId, userId));
+		verify(waitlistRepository, never()).save(any(WaitlistEntry.class));
 	}
 
 	@Test
 	@DisplayName("Should throw BadRequestException when user already participates in the session")
 	void testParticipate_UserAlreadyParticipates() {
 
-		session.getUsers().add(user);
+		when(userRepository.existsById(userId)).thenReturn(true);
+		when(sessionRepository.takeSeatAheadOfWaitlist(sessionId)).thenReturn(1);
+		when(sessionRepository.addParticipant(sessionId, userId))
+				.thenThrow(new DataIntegrityViolationException("duplicate"));
+
+		assertThrows(BadRequestException.class, () -> sessionService.participate(sessionId, userId));
+	}
+
+	@Test
+	@DisplayName("Should waitlist a newcomer in ledger mode while others wait for a seat")
+	void testParticipate_LedgerModeWaitlistPending() {
+
+		when(userRepository.existsById(userId)).thenReturn(true);
+		when(bookingLedger.isEnabled()).thenReturn(true);
+		when(waitlistRepository.existsBySessionId(sessionId)).thenReturn(true);
+		when(sessionRepository.existsById(sessionId)).thenReturn(true);
+		when(sessionRepository.countParticipant(sessionId, userId)).thenReturn(0);
+
+		assertEquals(BookingStatus.WAITLISTED, sessionService.participate(sessionId, userId));
+		verify(bookingLedger, never()).book(anyLong(), anyLong());
+		verify(waitlistRepository).save(any(WaitlistEntry.class));
+	}
+
+	@Test
+	@DisplayName("Should book through the ledger without writing to the database in ledger mode")
+	void testParticipate_LedgerMode() {
+
+		when(userRepository.existsById(userId)).thenReturn(true);
+		when(bookingLedger.isEnabled()).thenReturn(true);
+		when(bookingLedger.book(sessionId, userId)).thenReturn(BookingLedger.Result.BOOKED);
+
+		assertEquals(BookingStatus.BOOKED, sessionService.participate(sessionId, userId));
+		verify(sessionRepository, never()).takeSeatAheadOfWaitlist(anyLong());
+		verify(sessionRepository, never()).addParticipant(anyLong(), anyLong());
+		// Announced by the ledger once the booking is written
+		verify(sessionEvents, never()).participantAdded(anyLong(), anyLong());
+	}
+
+	@Test
+	@DisplayName("Should put the user on the waitlist when the ledger has no seat left")
+	void testParticipate_LedgerModeFull() {
+
+		when(userRepository.existsById(userId)).thenReturn(true);
+		when(bookingLedger.isEnabled()).thenReturn(true);
+		when(bookingLedger.book(sessionId, userId)).thenReturn(BookingLedger.Result.FULL);
+
+		assertEquals(BookingStatus.WAITLISTED, sessionService.participate(sessionId, userId));
+		verify(waitlistRepository).save(any(WaitlistEntry.class));
+		verifyNoInteractions(sessionEvents);
+	}
+
+	@Test
+	@DisplayName("Should flush a pending booking before removing it in ledger mode")
+	void testNoLongerParticipate_LedgerMode() {
+
+		when(bookingLedger.isEnabled()).thenReturn(true);
+		when(sessionRepository.removeParticipant(sessionId, userId)).thenReturn(1);
+
+		sessionService.noLongerParticipate(sessionId, userId);
+
+		// Écriture de la réservation avant l'ouverture de la transaction
+		InOrder order = inOrder(bookingLedger, transactionManager, sessionRepository);
+		order.verify(bookingLedger).flushBooking(sessionId, userId);
+		order.verify(transactionManager).getTransaction(any());
+		order.verify(sessionRepository).removeParticipant(sessionId, userId);
+		verify(sessionRepository).releaseSeat(sessionId);
+		verify(bookingLedger).release(sessionId, userId);
+	}
+
+	@Test
+	@DisplayName("Should not unbook when the pending booking cannot be written in ledger mode")
+	void testNoLongerParticipate_LedgerModeFlushFails() {
+
+		when(bookingLedger.isEnabled()).thenReturn(true);
+		doThrow(new ServiceUnavailableException(1)).when(bookingLedger).flushBooking(sessionId, userId);
+
+		assertThrows(ServiceUnavailableException.class, () -> sessionService.noLongerParticipate(sessionId, userId));
+		verify(sessionRepository, never()).removeParticipant(anyLong(), anyLong());
+		verifyNoInteractions(transactionManager);
+	}
+
+	@Test
+	@DisplayName("Should successfully remove user from session")
+	void testNoLongerParticipate_Success() {
+
+		when(sessionRepository.removeParticipant(sessionId, userId)).thenReturn(1);
+
+		assertDoesNotThrow(() -> sessionService.noLongerParticipate(sessionId, userId));
+		verify(sessionRepository).releaseSeat(sessionId);
+		verify(sessionRepository, never()).existsById(anyLong());
+		verify(sessionViewCache).invalidate(sessionId);
+		verify(sessionEvents).participantRemoved(sessionId, userId);
+	}
+
+	@Test
+	@DisplayName("Should remove a waitlisted user from the waitlist without releasing a seat")
+	void testNoLongerParticipate_Waitlisted() {
+
+		when(sessionRepository.removeParticipant(sessionId, userId)).thenReturn(0);
+		when(waitlistRepository.deleteBySessionIdAndUserId(sessionId, userId)).thenReturn(1);
+
+		assertDoesNotThrow(() -> sessionService.noLongerParticipate(sessionId, userId));
+		verify(sessionRepository, never()).releaseSeat(anyLong());
+		verifyNoInteractions(sessionEvents);
+	}
+
+	@Test
+	@DisplayName("Should throw NotFoundException when removing user from a missing session")
+	void testNoLongerParticipate_SessionNotFound() {
+
+		when(sessionRepository.removeParticipant(sessionId, userId)).thenReturn(0);
+		when(sessionRepository.existsById(sessionId)).thenReturn(false);
+
+		assertThrows(NotFoundException.class, () -> sessionService.noLongerParticipate(sessionId, userId));
+	}
+
+	@Test
+	@DisplayName("Should throw BadRequestException when user does not participate in the session")
+	void testNoLongerParticipate_NotParticipating() {
+
+		when(sessionRepository.removeParticipant(sessionId, userId)).thenReturn(0);
+		when(sessionRepository.existsById(sessionId)).thenReturn(true);
+
+		assertThrows(BadRequestException.class, () -> sessionService.noLongerParticipate(sessionId, userId));
+		verify(sessionRepository, never()).releaseSeat(anyLong());
+	}
 
+	@Test
+	@DisplayName("Should update session details without touching participants or seats")
+	void testUpdate_KeepsParticipants() {
+		session.getUserIds().add(userId);
+		session.setSeatsTaken(1);
 		when(sessionRepository.findById(sessionId)).thenReturn(Optional.of(session));
-		when(userRepository.findById(userId)).thenReturn(Optional.of(user));
 
-		assertThrows(BadRequestException.class, () -> sessionService.participate(sessionId, userId));
+		Session changes = new Session().setName("Updated").setDescription("Updated description")
+				.setDate(new Date(1000L)).setCapacity(10).setUserIds(new HashSet<>()).setSeatsTaken(0);
+
+		Session updated = sessionService.update(sessionId, changes);
+
+		assertSame(session, updated);
+		assertEquals("Updated", updated.getName());
+		assertEquals(10, updated.getCapacity());
+		assertEquals(Collections.singleton(userId), updated.getUserIds());
+		assertEquals(1, updated.getSeatsTaken());
+		verify(sessionEvents).updated(sessionId);
+	}
+
+	@Test
+	@DisplayName("Should create a session without the participants sent with it")
+	void testCreate_IgnoresParticipants() {
+		session.setUserIds(new HashSet<>(Arrays.asList(1L, 2L)));
+		when(sessionRepository.save(session)).thenReturn(session);
+
+		Session created = sessionService.create(session);
+
+		assertTrue(created.getUserIds().isEmpty());
+		verify(sessionRepository, never()).addParticipant(anyLong(), anyLong());
+	}
+
+	@Test
+	@DisplayName("Should announce created and deleted sessions")
+	void testCreateAndDelete_PublishEvents() {
+		when(sessionRepository.save(session)).thenReturn(session);
+
+		sessionService.create(session);
+		sessionService.delete(sessionId);
+
+		verify(sessionEvents).created(sessionId);
+		verify(sessionEvents).deleted(sessionId);
+	}
+
+	@Test
+	@DisplayName("Should throw NotFoundException when updating a missing session")
+	void testUpdate_NotFound() {
+		when(sessionRepository.findById(sessionId)).thenReturn(Optional.empty());
+
+		assertThrows(NotFoundException.class, () -> sessionService.update(sessionId, new Session()));
+		verifyNoInteractions(sessionEvents);
+	}
+
+	@Test
+	@DisplayName("Should return a page with the cursor of the next one")
+	void testFindPage_NextPage() {
+		Session first = new Session().setId(1L).setDate(new Date(1000L));
+		Session second = new Session().setId(2L).setDate(new Date(2000L));
+		Session extra = new Session().setId(3L).setDate(new Date(3000L));
+		when(sessionRepository.findFirstPage(PageRequest.of(0, 3))).thenReturn(Arrays.asList(first, second, extra));
+
+		SessionPage page = sessionService.findPage(null, 2);
+
+		assertEquals(Arrays.asList(first, second), page.getSessions());
+		assertEquals(SessionService.encodeCursor(2000L, 2L), page.getNextCursor());
 	}
 
-}
\ No newline at end of file
+	@Test
+	@DisplayName("Should return the last page without cursor")
+	void testFindPage_LastPage() {
+		Session last = new Session().setId(3L).setDate(new Date(3000L));
+		when(sessionRepository.findPageAfter(new Date(2000L), 2L, PageRequest.of(0, 3)))
+				.thenReturn(Collections.singletonList(last));
+
+		SessionPage page = sessionService.findPage(SessionService.encodeCursor(2000L, 2L), 2);
+
+		assertEquals(Collections.singletonList(last), page.getSessions());
+		assertNull(page.getNextCursor());
+	}
+
+	@Test
+	@DisplayName("Should throw BadRequestException when the cursor is invalid")
+	void testFindPage_InvalidCursor() {
+		assertThrows(BadRequestException.class, () -> sessionService.findPage("not-a-cursor", 2));
+		assertThrows(BadRequestException.class, () -> sessionService.findPage("%%%", 2));
+	}
+}
@@ -0,0 +1,152 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Classe de test unitaire pour {@link SessionViewCache}.
+ * <p>
+ *     Scénarios testés :
+ *     <ul>
+ *         <li>Une session lue deux fois n'est chargée et convertie qu'une fois</li>
+ *         <li>La liste des sessions lue deux fois n'est chargée qu'une fois</li>
+ *         <li>Une session inexistante n'est pas mise en cache</li>
+ *         <li>L'invalidation d'une session recharge la session et la liste</li>
+ *         <li>Une vue chargée avant une modification n'est plus servie</li>
+ *         <li>Taux de succès publié en métrique</li>
+ *     </ul>
+ * </p>
+ */
+@ExtendWith(MockitoExtension.class)
+class SessionViewCacheTest {
+
+	@Mock
+	private SessionRepository sessionRepository;
+
+	@Mock
+	private SessionMapper sessionMapper;
+
+	private ResourceVersions resourceVersions;
+
+	private SimpleMeterRegistry meterRegistry;
+
+	private SessionViewCache sessionViewCache;
+
+	private Session session;
+
+	private SessionDto sessionDto;
+
+	@BeforeEach
+	void setUp() {
+		resourceVersions = new ResourceVersions();
+		meterRegistry = new SimpleMeterRegistry();
+		sessionViewCache = new SessionViewCache(sessionRepository, sessionMapper, resourceVersions, meterRegistry, 100, 60000L);
+
+		session = Session.builder().id(1L).name("Yoga").build();
+		sessionDto = new SessionDto();
+		sessionDto.setId(1L);
+		sessionDto.setName("Yoga");
+	}
+
+	@Test
+	@DisplayName("Should load and map a session once for repeated reads")
+	void testFindById_Cached() {
+		when(sessionRepository.findWithTeacherAndParticipantsById(1L)).thenReturn(Optional.of(session));
+		when(sessionMapper.toDto(session)).thenReturn(sessionDto);
+
+		assertSame(sessionDto, sessionViewCache.findById(1L));
+		assertSame(sessionDto, sessionViewCache.findById(1L));
+
+		verify(sessionRepository, times(1)).findWithTeacherAndParticipantsById(1L);
+		verify(sessionMapper, times(1)).toDto(session);
+		assertEquals(1, sessionViewCache.getHitCount());
+		assertEquals(1, sessionViewCache.getMissCount());
+	}
+
+	@Test
+	@DisplayName("Should load the session list once for repeated reads")
+	void testFindAll_Cached() {
+		List<Session> sessions = Collections.singletonList(session);
+		when(sessionRepository.findAllWithTeacherAndParticipants()).thenReturn(sessions);
+		when(sessionMapper.toDto(sessions)).thenReturn(Collections.singletonList(sessionDto));
+
+		assertEquals(1, sessionViewCache.findAll().size());
+		assertEquals(1, sessionViewCache.findAll().size());
+
+		verify(sessionRepository, times(1)).findAllWithTeacherAndParticipants();
+		assertThrows(UnsupportedOperationException.class, () -> sessionViewCache.findAll().clear());
+	}
+
+	@Test
+	@DisplayName("Should not cache a missing session")
+	void testFindById_NotFound() {
+		when(sessionRepository.findWithTeacherAndParticipantsById(2L)).thenReturn(Optional.empty());
+
+		assertNull(sessionViewCache.findById(2L));
+		assertNull(sessionViewCache.findById(2L));
+
+		verify(sessionRepository, times(2)).findWithTeacherAndParticipantsById(2L);
+	}
+
+	@Test
+	@DisplayName("Should reload the session and the list once invalidated")
+	void testInvalidate() {
+		List<Session> sessions = Collections.singletonList(session);
+		when(sessionRepository.findWithTeacherAndParticipantsById(1L)).thenReturn(Optional.of(session));
+		when(sessionRepository.findAllWithTeacherAndParticipants()).thenReturn(sessions);
+		when(sessionMapper.toDto(session)).thenReturn(sessionDto);
+		when(sessionMapper.toDto(sessions)).thenReturn(Collections.singletonList(sessionDto));
+		sessionViewCache.findById(1L);
+		sessionViewCache.findAll();
+
+		sessionViewCache.invalidate(1L);
+		sessionViewCache.findById(1L);
+		sessionViewCache.findAll();
+
+		verify(sessionRepository, times(2)).findWithTeacherAndParticipantsById(1L);
+		verify(sessionRepository, times(2)).findAllWithTeacherAndParticipants();
+	}
+
+	@Test
+	@DisplayName("Should not serve a view loaded before the session changed")
+	void testFindById_VersionMoved() {
+		when(sessionRepository.findWithTeacherAndParticipantsById(1L)).thenReturn(Optional.of(session));
+		when(sessionMapper.toDto(session)).thenReturn(sessionDto);
+		sessionViewCache.findById(1L);
+
+		// Modification faite hors de SessionService, par exemple une promotion de la liste d'attente
+		resourceVersions.sessionChanged(1L);
+		sessionViewCache.findById(1L);
+
+		verify(sessionRepository, times(2)).findWithTeacherAndParticipantsById(1L);
+	}
+
+	@Test
+	@DisplayName("Should publish the hit ratio")
+	void testHitRatio() {
+		when(sessionRepository.findWithTeacherAndParticipantsById(1L)).thenReturn(Optional.of(session));
+		when(sessionMapper.toDto(session)).thenReturn(sessionDto);
+
+		for (int i = 0; i < 4; i++) {
+			sessionViewCache.findById(1L);
+		}
+
+		assertEquals(0.75, meterRegistry.get("cache.hit.ratio").tag("cache", "sessions").gauge().value());
+	}
+}
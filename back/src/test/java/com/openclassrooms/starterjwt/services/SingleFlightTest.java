@@ -0,0 +1,144 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.exception.NotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Classe de test unitaire pour {@link SingleFlight}.
+ * <p>
+ *     Scénarios testés :
+ *     <ul>
+ *         <li>Les appels concurrents d'une même clé partagent un seul chargement</li>
+ *         <li>Des clés différentes sont chargées séparément</li>
+ *         <li>Un appel arrivant après la fin du chargement recharge</li>
+ *         <li>L'exception du chargement est transmise aux appels en attente</li>
+ *     </ul>
+ * </p>
+ */
+class SingleFlightTest {
+
+	private static final int CALLERS = 8;
+
+	private SimpleMeterRegistry meterRegistry;
+
+	private SingleFlight<String, String> singleFlight;
+
+	private ExecutorService executor;
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		singleFlight = new SingleFlight<>("test", meterRegistry);
+		executor = Executors.newFixedThreadPool(CALLERS);
+	}
+
+	@AfterEach
+	void tearDown() {
+		executor.shutdownNow();
+	}
+
+	@Test
+	@DisplayName("Concurrent calls for one key share a single load")
+	void testLoad_Coalesced() throws Exception {
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+
+		List<Future<String>> results = callConcurrently("key", () -> {
+			loads.incrementAndGet();
+			await(release);
+			return "value";
+		});
+		release.countDown();
+
+		for (Future<String> result : results) {
+			assertEquals("value", result.get(5, TimeUnit.SECONDS));
+		}
+		assertEquals(1, loads.get());
+		assertEquals(1, singleFlight.getExecutedCount());
+		assertEquals(CALLERS - 1, singleFlight.getDeduplicatedCount());
+		assertEquals(CALLERS - 1, meterRegistry.get("singleflight.loads").tag("result", "deduplicated").functionCounter().count());
+	}
+
+	@Test
+	@DisplayName("Different keys are loaded separately")
+	void testLoad_DifferentKeys() {
+		assertEquals("a", singleFlight.load("a", () -> "a"));
+		assertEquals("b", singleFlight.load("b", () -> "b"));
+
+		assertEquals(2, singleFlight.getExecutedCount());
+		assertEquals(0, singleFlight.getDeduplicatedCount());
+	}
+
+	@Test
+	@DisplayName("A call made after the load completed loads again")
+	void testLoad_Sequential() {
+		AtomicInteger loads = new AtomicInteger();
+
+		singleFlight.load("key", () -> "value" + loads.incrementAndGet());
+
+		assertEquals("value2", singleFlight.load("key", () -> "value" + loads.incrementAndGet()));
+	}
+
+	@Test
+	@DisplayName("Waiting calls get the exception of the load")
+	void testLoad_SharedException() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+
+		List<Future<String>> results = callConcurrently("key", () -> {
+			await(release);
+			throw new NotFoundException();
+		});
+		release.countDown();
+
+		for (Future<String> result : results) {
+			ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+			assertInstanceOf(NotFoundException.class, e.getCause());
+		}
+		assertEquals(1, singleFlight.getExecutedCount());
+	}
+
+	// Lance les appels et attend qu'ils soient tous en cours : le premier charge, les autres attendent
+	private List<Future<String>> callConcurrently(String key, Supplier<String> loader) throws InterruptedException {
+		CountDownLatch started = new CountDownLatch(1);
+		List<Future<String>> results = new ArrayList<>();
+		results.add(executor.submit(() -> singleFlight.load(key, () -> {
+			started.countDown();
+			return loader.get();
+		})));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		for (int i = 1; i < CALLERS; i++) {
+			results.add(executor.submit(() -> singleFlight.load(key, loader)));
+		}
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (singleFlight.getDeduplicatedCount() < CALLERS - 1 && System.nanoTime() < deadline) {
+			Thread.sleep(1);
+		}
+		return results;
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			assertTrue(latch.await(5, TimeUnit.SECONDS));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.SqlStatementCounter;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *  Classe de test d'intégration du cache de second niveau des enseignants.
+ *<p>
+ *     Scénarios testés:
+ *     <ul>
+ *         <li>Un enseignant déjà lu est retrouvé par ID sans requête SQL</li>
+ *         <li>La liste des enseignants est servie par le cache de requêtes sans requête SQL</li>
+ *         <li>L'ajout d'un enseignant invalide la liste en cache</li>
+ *         <li>Les réservations (requêtes natives) ne vident pas le cache des enseignants</li>
+ *     </ul>
+ *</p>
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class TeacherSecondLevelCacheTest {
+
+	@Autowired
+	private TeacherService teacherService;
+
+	@Autowired
+	private TeacherRepository teacherRepository;
+
+	@Autowired
+	private SessionRepository sessionRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Statistics statistics;
+
+	private Teacher teacher;
+
+	@BeforeEach
+	void setUp() {
+		sessionRepository.deleteAll();
+		teacherRepository.deleteAll();
+		teacher = teacherRepository.save(Teacher.builder().firstName("Albus").lastName("Dumbledore").build());
+
+		entityManagerFactory.getCache().evictAll();
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	@AfterEach
+	void cleanUp() {
+		sessionRepository.deleteAll();
+		teacherRepository.deleteAll();
+	}
+
+	@Test
+	@DisplayName("A teacher read once is found by ID without a query")
+	void testFindById_Cached() {
+		teacherService.findById(teacher.getId());
+
+		SqlStatementCounter.reset();
+		assertEquals("Albus", teacherService.findById(teacher.getId()).getFirstName());
+
+		assertTrue(SqlStatementCounter.statements().isEmpty());
+		assertEquals(1, statistics.getDomainDataRegionStatistics("teachers").getHitCount());
+	}
+
+	@Test
+	@DisplayName("The teacher list is served by the query cache without a query")
+	void testFindAll_Cached() {
+		teacherService.findAll();
+
+		SqlStatementCounter.reset();
+		assertEquals(1, teacherService.findAll().size());
+
+		assertTrue(SqlStatementCounter.statements().isEmpty());
+		assertEquals(1, statistics.getQueryRegionStatistics("teacher-queries").getHitCount());
+	}
+
+	@Test
+	@DisplayName("Saving a teacher invalidates the cached list")
+	void testFindAll_InvalidatedBySave() {
+		teacherService.findAll();
+
+		teacherRepository.save(Teacher.builder().firstName("Minerva").lastName("McGonagall").build());
+
+		assertEquals(2, teacherService.findAll().size());
+	}
+
+	@Test
+	@DisplayName("Native booking statements leave the teacher cache untouched")
+	void testNativeWrites_KeepTeacherCache() {
+		Session session = sessionRepository.save(Session.builder()
+				.name("Yoga")
+				.description("Yoga")
+				.date(new Date())
+				.teacher(teacher)
+				.build());
+		teacherService.findById(teacher.getId());
+		teacherService.findAll();
+
+		sessionRepository.takeSeat(session.getId());
+		sessionRepository.releaseSeat(session.getId());
+
+		SqlStatementCounter.reset();
+		teacherService.findById(teacher.getId());
+		teacherService.findAll();
+		assertTrue(SqlStatementCounter.statements().isEmpty());
+	}
+}
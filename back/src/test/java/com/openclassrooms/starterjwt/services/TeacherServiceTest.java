@@ -2,11 +2,11 @@ package com.openclassrooms.starterjwt.services;
 
 import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
@@ -34,7 +34,6 @@ class TeacherServiceTest {
 	@Mock
 	private TeacherRepository teacherRepository;
 
-	@InjectMocks
 	private TeacherService teacherService;
 
 	private Teacher teacherOne;
@@ -42,6 +41,8 @@ class TeacherServiceTest {
 
 	@BeforeEach
 	void setUp() {
+		teacherService = new TeacherService(teacherRepository, new ResourceVersions(), new SimpleMeterRegistry());
+
 		teacherOne = Teacher.builder()
 				.id(1L)
 				.firstName("Albus")
@@ -0,0 +1,113 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Classe de test unitaire pour {@link UserCache}.
+ * <p>
+ *     Scénarios testés :
+ *     <ul>
+ *         <li>Un utilisateur chargé par email est retrouvé par ID sans requête</li>
+ *         <li>Un utilisateur chargé par ID est retrouvé par email sans requête</li>
+ *         <li>Un utilisateur inexistant n'est pas mis en cache</li>
+ *         <li>Invalidation par ID et par email</li>
+ *         <li>Comptage des succès et des échecs</li>
+ *     </ul>
+ * </p>
+ */
+@ExtendWith(MockitoExtension.class)
+class UserCacheTest {
+
+	@Mock
+	private UserRepository userRepository;
+
+	private SimpleMeterRegistry meterRegistry;
+
+	private UserCache userCache;
+
+	private User user;
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		userCache = new UserCache(userRepository, meterRegistry, 100, 60000L);
+
+		user = User.builder()
+				.id(1L)
+				.firstName("John")
+				.lastName("Doe")
+				.password("password")
+				.email("john.doe@example.com")
+				.build();
+	}
+
+	@Test
+	@DisplayName("Should find by ID a user loaded by email without querying again")
+	void testFindByEmailThenById() {
+		when(userRepository.findByEmail(user.getEmail())).thenReturn(Optional.of(user));
+
+		assertEquals(user, userCache.findByEmail(user.getEmail()).orElse(null));
+		assertEquals(user, userCache.findById(user.getId()).orElse(null));
+		assertEquals(user, userCache.findByEmail(user.getEmail()).orElse(null));
+
+		verify(userRepository, times(1)).findByEmail(user.getEmail());
+		verify(userRepository, never()).findById(any());
+		assertEquals(2, userCache.getHitCount());
+		assertEquals(1, userCache.getMissCount());
+		assertEquals(2.0, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count());
+	}
+
+	@Test
+	@DisplayName("Should find by email a user loaded by ID without querying again")
+	void testFindByIdThenEmail() {
+		when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+
+		assertTrue(userCache.findById(user.getId()).isPresent());
+		assertTrue(userCache.findByEmail(user.getEmail()).isPresent());
+
+		verify(userRepository, times(1)).findById(user.getId());
+		verify(userRepository, never()).findByEmail(any());
+	}
+
+	@Test
+	@DisplayName("Should not cache a missing user")
+	void testFindById_NotFound() {
+		when(userRepository.findById(2L)).thenReturn(Optional.empty());
+
+		assertFalse(userCache.findById(2L).isPresent());
+		assertFalse(userCache.findById(2L).isPresent());
+
+		verify(userRepository, times(2)).findById(2L);
+		assertEquals(2, userCache.getMissCount());
+	}
+
+	@Test
+	@DisplayName("Should reload a user after invalidation by ID or by email")
+	void testInvalidate() {
+		when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+		when(userRepository.findByEmail(user.getEmail())).thenReturn(Optional.of(user));
+
+		userCache.findById(user.getId());
+		userCache.invalidate(user.getId());
+		userCache.findByEmail(user.getEmail());
+		userCache.invalidateEmail(user.getEmail());
+		userCache.findById(user.getId());
+
+		verify(userRepository, times(2)).findById(user.getId());
+		verify(userRepository, times(1)).findByEmail(user.getEmail());
+		assertEquals(0, userCache.getHitCount());
+	}
+}
@@ -2,6 +2,8 @@ package com.openclassrooms.starterjwt.services;
 
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.services.RefreshTokenService;
+import com.openclassrooms.starterjwt.security.services.UserRevalidationService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -32,6 +34,15 @@ class UserServiceTest {
 	@Mock
 	private UserRepository userRepository;
 
+	@Mock
+	private UserCache userCache;
+
+	@Mock
+	private UserRevalidationService userRevalidationService;
+
+	@Mock
+	private RefreshTokenService refreshTokenService;
+
 	@InjectMocks
 	private UserService userService;
 
@@ -57,13 +68,16 @@ class UserServiceTest {
 
 		// THEN
 		verify(userRepository, times(1)).deleteById(user.getId());
+		verify(userCache, times(1)).invalidate(user.getId());
+		verify(userRevalidationService, times(1)).invalidate(user.getId());
+		verify(refreshTokenService, times(1)).revokeAll(user.getId());
 	}
 
 	@Test
 	@DisplayName("Should return a user when ID exists")
 	void testFindById_Success() {
 		// GIVEN
-		when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+		when(userCache.findById(user.getId())).thenReturn(Optional.of(user));
 
 		// WHEN
 		User actualUser = userService.findById(user.getId());
@@ -71,21 +85,21 @@ class UserServiceTest {
 		// THEN
 		assertNotNull(actualUser);
 		assertEquals(user, actualUser);
-		verify(userRepository, times(1)).findById(user.getId());
+		verify(userCache, times(1)).findById(user.getId());
 	}
 
 	@Test
 	@DisplayName("Should return null when user ID does not exist")
 	void testFindById_NotFound() {
 		// GIVEN
-		when(userRepository.findById(user.getId())).thenReturn(Optional.empty());
+		when(userCache.findById(user.getId())).thenReturn(Optional.empty());
 
 		// WHEN
 		User actualUser = userService.findById(user.getId());
 
 		// THEN
 		assertNull(actualUser);
-		verify(userRepository, times(1)).findById(user.getId());
+		verify(userCache, times(1)).findById(user.getId());
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,237 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.exception.ConflictException;
+import com.openclassrooms.starterjwt.exception.ServiceUnavailableException;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * Classe de test unitaire pour {@link WaitingRoom}.
+ * <p>
+ *     Scénarios testés :
+ *     <ul>
+ *         <li>Réservation directe sans ouverture programmée ou après la fenêtre d'ouverture</li>
+ *         <li>Ticket unique par utilisateur, aucune admission avant l'ouverture</li>
+ *         <li>Admissions limitées au débit configuré, dans l'ordre d'arrivée</li>
+ *         <li>Résultat de la réservation conservé dans le ticket</li>
+ *         <li>Base de données indisponible : le ticket reste en tête de file</li>
+ *         <li>Erreur inattendue : le ticket est rejeté et la file continue</li>
+ *         <li>File pleine : service indisponible</li>
+ *         <li>Purge des tickets traités après leur durée de vie</li>
+ *         <li>Nouvelle réservation après un ticket traité : nouveau ticket mis en file</li>
+ *     </ul>
+ * </p>
+ */
+@ExtendWith(MockitoExtension.class)
+class WaitingRoomTest {
+
+	private static final long OPENS_AT = 60_000;
+
+	@Mock
+	private SessionService sessionService;
+
+	@Mock
+	private SessionRepository sessionRepository;
+
+	private final AtomicLong clock = new AtomicLong();
+
+	private WaitingRoom waitingRoom;
+
+	@BeforeEach
+	void setUp() {
+		waitingRoom = new WaitingRoom(sessionService, sessionRepository, new SimpleMeterRegistry(),
+				5, 600_000, 10, 60_000, 60_000, clock::get);
+	}
+
+	@Test
+	@DisplayName("Should let bookings through when the session has no booking opening")
+	void testEnqueue_NoOpening() {
+		when(sessionRepository.findBookingOpensAtById(1L)).thenReturn(Optional.empty());
+
+		assertNull(waitingRoom.enqueueIfActive(1L, 1L));
+	}
+
+	@Test
+	@DisplayName("Should let bookings through once the opening window is over")
+	void testEnqueue_WindowOver() {
+		opensAt(1L);
+		clock.set(OPENS_AT + 600_000);
+
+		assertNull(waitingRoom.enqueueIfActive(1L, 1L));
+	}
+
+	@Test
+	@DisplayName("Should give one ticket per user and admit nobody before the opening")
+	void testAdmit_WaitsForOpening() {
+		opensAt(1L);
+		when(sessionService.participate(1L, 1L)).thenReturn(BookingStatus.BOOKED);
+
+		QueueTicket ticket = waitingRoom.enqueueIfActive(1L, 1L);
+		assertSame(ticket, waitingRoom.enqueueIfActive(1L, 1L));
+		assertSame(ticket, waitingRoom.find(ticket.getId()));
+		assertEquals(QueueTicket.State.QUEUED, ticket.getState());
+		// Une minute avant l'ouverture, plus le temps de passer la file
+		assertEquals(61, waitingRoom.retryAfterSeconds(ticket));
+
+		clock.set(OPENS_AT - 1000);
+		assertEquals(0, waitingRoom.admit());
+		verify(sessionService, never()).participate(anyLong(), anyLong());
+
+		clock.set(OPENS_AT);
+		assertEquals(1, waitingRoom.admit());
+		assertEquals(QueueTicket.State.BOOKED, ticket.getState());
+		assertEquals(200, ticket.getStatus());
+	}
+
+	@Test
+	@DisplayName("Should admit queued users in order within the admission rate")
+	void testAdmit_RateLimited() {
+		opensAt(1L);
+		QueueTicket[] tickets = new QueueTicket[8];
+		for (int i = 0; i < tickets.length; i++) {
+			tickets[i] = waitingRoom.enqueueIfActive(1L, (long) i);
+		}
+		assertEquals(7, waitingRoom.position(tickets[7]));
+
+		clock.set(OPENS_AT);
+		assertEquals(5, waitingRoom.admit());
+		assertEquals(QueueTicket.State.BOOKED, tickets[4].getState());
+		assertEquals(QueueTicket.State.QUEUED, tickets[5].getState());
+		assertEquals(2, waitingRoom.position(tickets[7]));
+
+		clock.set(OPENS_AT + 200);
+		assertEquals(1, waitingRoom.admit());
+		assertEquals(QueueTicket.State.BOOKED, tickets[5].getState());
+		verify(sessionService, times(6)).participate(eq(1L), anyLong());
+	}
+
+	@Test
+	@DisplayName("Should keep the outcome of the booking in the ticket")
+	void testAdmit_Outcomes() {
+		opensAt(1L);
+		when(sessionService.participate(1L, 1L)).thenReturn(BookingStatus.WAITLISTED);
+		when(sessionService.participate(1L, 2L)).thenThrow(new ConflictException());
+		QueueTicket waitlisted = waitingRoom.enqueueIfActive(1L, 1L);
+		QueueTicket rejected = waitingRoom.enqueueIfActive(1L, 2L);
+
+		clock.set(OPENS_AT);
+		assertEquals(2, waitingRoom.admit());
+		assertEquals(QueueTicket.State.WAITLISTED, waitlisted.getState());
+		assertEquals(202, waitlisted.getStatus());
+		assertEquals(QueueTicket.State.REJECTED, rejected.getState());
+		assertEquals(409, rejected.getStatus());
+	}
+
+	@Test
+	@DisplayName("Should keep the ticket first in line when the database is unavailable")
+	void testAdmit_DatabaseUnavailable() {
+		opensAt(1L);
+		when(sessionService.participate(1L, 1L))
+				.thenThrow(new DataAccessResourceFailureException("down"))
+				.thenReturn(BookingStatus.BOOKED);
+		QueueTicket ticket = waitingRoom.enqueueIfActive(1L, 1L);
+
+		clock.set(OPENS_AT);
+		assertEquals(0, waitingRoom.admit());
+		assertEquals(QueueTicket.State.QUEUED, ticket.getState());
+
+		clock.set(OPENS_AT + 1000);
+		assertEquals(1, waitingRoom.admit());
+		assertEquals(QueueTicket.State.BOOKED, ticket.getState());
+	}
+
+	@Test
+	@DisplayName("Should reject the ticket on an unexpected failure and keep admitting the others")
+	void testAdmit_UnexpectedFailure() {
+		opensAt(1L);
+		when(sessionService.participate(1L, 1L))
+				.thenThrow(new UncheckedIOException(new IOException("journal")))
+				.thenReturn(BookingStatus.BOOKED);
+		when(sessionService.participate(1L, 2L)).thenReturn(BookingStatus.BOOKED);
+		QueueTicket failed = waitingRoom.enqueueIfActive(1L, 1L);
+		QueueTicket next = waitingRoom.enqueueIfActive(1L, 2L);
+
+		clock.set(OPENS_AT);
+		assertEquals(2, waitingRoom.admit());
+		assertEquals(QueueTicket.State.REJECTED, failed.getState());
+		assertEquals(500, failed.getStatus());
+		assertEquals(QueueTicket.State.BOOKED, next.getState());
+		assertEquals(0, waitingRoom.position(next));
+
+		// L'utilisateur peut réessayer avec un nouveau ticket
+		QueueTicket again = waitingRoom.enqueueIfActive(1L, 1L);
+		assertNotSame(failed, again);
+		assertEquals(1, waitingRoom.admit());
+		assertEquals(QueueTicket.State.BOOKED, again.getState());
+	}
+
+	@Test
+	@DisplayName("Should refuse new tickets when the queue is full")
+	void testEnqueue_QueueFull() {
+		opensAt(1L);
+		for (long user = 0; user < 10; user++) {
+			waitingRoom.enqueueIfActive(1L, user);
+		}
+
+		assertThrows(ServiceUnavailableException.class, () -> waitingRoom.enqueueIfActive(1L, 10L));
+	}
+
+	@Test
+	@DisplayName("Should forget admitted tickets once their time to live is over")
+	void testAdmit_PurgesOldTickets() {
+		opensAt(1L);
+		when(sessionService.participate(1L, 1L)).thenReturn(BookingStatus.BOOKED);
+		QueueTicket ticket = waitingRoom.enqueueIfActive(1L, 1L);
+
+		clock.set(OPENS_AT);
+		waitingRoom.admit();
+		clock.set(OPENS_AT + 60_001);
+		waitingRoom.admit();
+
+		assertNull(waitingRoom.find(ticket.getId()));
+	}
+
+	@Test
+	@DisplayName("Should queue a new ticket when the user books again after the first one completed")
+	void testEnqueue_AgainAfterCompletion() {
+		opensAt(1L);
+		when(sessionService.participate(1L, 1L)).thenReturn(BookingStatus.BOOKED);
+		QueueTicket first = waitingRoom.enqueueIfActive(1L, 1L);
+
+		clock.set(OPENS_AT);
+		assertEquals(1, waitingRoom.admit());
+		assertEquals(QueueTicket.State.BOOKED, first.getState());
+
+		// Désinscription puis nouvelle réservation pendant la fenêtre d'ouverture
+		clock.set(OPENS_AT + 1000);
+		QueueTicket second = waitingRoom.enqueueIfActive(1L, 1L);
+		assertNotSame(first, second);
+		assertEquals(QueueTicket.State.QUEUED, second.getState());
+		assertSame(first, waitingRoom.find(first.getId()));
+
+		assertEquals(1, waitingRoom.admit());
+		assertEquals(QueueTicket.State.BOOKED, second.getState());
+		verify(sessionService, times(2)).participate(1L, 1L);
+	}
+
+	private void opensAt(Long sessionId) {
+		when(sessionRepository.findBookingOpensAtById(sessionId)).thenReturn(Optional.of(new Date(OPENS_AT)));
+	}
+}
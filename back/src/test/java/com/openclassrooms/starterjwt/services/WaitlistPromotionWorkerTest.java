@@ -0,0 +1,81 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.models.WaitlistEntry;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+/**
+ * Classe de test unitaire pour {@link WaitlistPromotionWorker}.
+ * <p>
+ *     Scénarios testés :
+ *     <ul>
+ *         <li>Promotion d'un lot d'entrées, dans l'ordre</li>
+ *         <li>Entrées suivantes ignorées une fois la session complète</li>
+ *         <li>Base de données indisponible : aucune promotion, sans erreur</li>
+ *     </ul>
+ * </p>
+ */
+@ExtendWith(MockitoExtension.class)
+class WaitlistPromotionWorkerTest {
+
+	@Mock
+	private WaitlistRepository waitlistRepository;
+
+	@Mock
+	private WaitlistService waitlistService;
+
+	private WaitlistPromotionWorker worker;
+
+	private final WaitlistEntry first = WaitlistEntry.builder().id(1L).sessionId(10L).userId(1L).build();
+	private final WaitlistEntry second = WaitlistEntry.builder().id(2L).sessionId(10L).userId(2L).build();
+	private final WaitlistEntry other = WaitlistEntry.builder().id(3L).sessionId(20L).userId(3L).build();
+
+	@BeforeEach
+	void setUp() {
+		worker = new WaitlistPromotionWorker(waitlistRepository, waitlistService, 50);
+	}
+
+	@Test
+	@DisplayName("Should promote a batch of entries in order")
+	void testPromoteWaitlisted_Batch() {
+		when(waitlistRepository.findPromotable(PageRequest.of(0, 50))).thenReturn(Arrays.asList(first, second, other));
+		when(waitlistService.promote(any(WaitlistEntry.class))).thenReturn(WaitlistService.Promotion.PROMOTED);
+
+		assertEquals(3, worker.promoteWaitlisted());
+		verify(waitlistService).promote(first);
+		verify(waitlistService).promote(second);
+		verify(waitlistService).promote(other);
+	}
+
+	@Test
+	@DisplayName("Should skip the remaining entries of a session once it is full")
+	void testPromoteWaitlisted_SessionFull() {
+		when(waitlistRepository.findPromotable(PageRequest.of(0, 50))).thenReturn(Arrays.asList(first, second, other));
+		when(waitlistService.promote(first)).thenReturn(WaitlistService.Promotion.SESSION_FULL);
+		when(waitlistService.promote(other)).thenReturn(WaitlistService.Promotion.PROMOTED);
+
+		assertEquals(1, worker.promoteWaitlisted());
+		verify(waitlistService, never()).promote(second);
+	}
+
+	@Test
+	@DisplayName("Should keep entries queued when the database is unavailable")
+	void testPromoteWaitlisted_DatabaseUnavailable() {
+		when(waitlistRepository.findPromotable(any())).thenThrow(new DataAccessResourceFailureException("down"));
+
+		assertEquals(0, worker.promoteWaitlisted());
+		verifyNoInteractions(waitlistService);
+	}
+}
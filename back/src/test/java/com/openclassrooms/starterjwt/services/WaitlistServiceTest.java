@@ -0,0 +1,133 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.models.WaitlistEntry;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Classe de test unitaire pour {@link WaitlistService}.
+ * <p>
+ *     Scénarios testés :
+ *     <ul>
+ *         <li>Promotion réussie d'un utilisateur en liste d'attente</li>
+ *         <li>Aucune modification lorsque la session est complète</li>
+ *         <li>Place rendue lorsque l'entrée a déjà été traitée</li>
+ *         <li>Place rendue lorsque l'utilisateur est déjà inscrit</li>
+ *         <li>Mode registre : promotion par le registre, entrée supprimée seulement avec une place</li>
+ *     </ul>
+ * </p>
+ */
+@ExtendWith(MockitoExtension.class)
+class WaitlistServiceTest {
+
+	@Mock
+	private WaitlistRepository waitlistRepository;
+
+	@Mock
+	private SessionRepository sessionRepository;
+
+	@Mock
+	private BookingLedger bookingLedger;
+
+	@Mock
+	private ResourceVersions resourceVersions;
+
+	@Mock
+	private SessionEvents sessionEvents;
+
+	@InjectMocks
+	private WaitlistService waitlistService;
+
+	private WaitlistEntry entry;
+
+	@BeforeEach
+	void setUp() {
+		entry = WaitlistEntry.builder().id(7L).sessionId(1L).userId(2L).build();
+	}
+
+	@Test
+	@DisplayName("Should book the waitlisted user on a free seat")
+	void testPromote_Success() {
+		when(sessionRepository.takeSeat(1L)).thenReturn(1);
+		when(waitlistRepository.deleteOne(7L)).thenReturn(1);
+		when(sessionRepository.countParticipant(1L, 2L)).thenReturn(0);
+
+		assertEquals(WaitlistService.Promotion.PROMOTED, waitlistService.promote(entry));
+		verify(sessionRepository).addParticipant(1L, 2L);
+		verify(sessionRepository, never()).releaseSeat(anyLong());
+		verify(sessionEvents).participantAdded(1L, 2L);
+	}
+
+	@Test
+	@DisplayName("Should keep the entry when the session is full")
+	void testPromote_SessionFull() {
+		when(sessionRepository.takeSeat(1L)).thenReturn(0);
+
+		assertEquals(WaitlistService.Promotion.SESSION_FULL, waitlistService.promote(entry));
+		verify(waitlistRepository, never()).deleteOne(anyLong());
+		verify(sessionRepository, never()).addParticipant(anyLong(), anyLong());
+	}
+
+	@Test
+	@DisplayName("Should give the seat back when the entry was already promoted")
+	void testPromote_AlreadyPromoted() {
+		when(sessionRepository.takeSeat(1L)).thenReturn(1);
+		when(waitlistRepository.deleteOne(7L)).thenReturn(0);
+
+		assertEquals(WaitlistService.Promotion.SKIPPED, waitlistService.promote(entry));
+		verify(sessionRepository).releaseSeat(1L);
+		verify(sessionRepository, never()).addParticipant(anyLong(), anyLong());
+	}
+
+	@Test
+	@DisplayName("Should give the seat back when the user already participates")
+	void testPromote_AlreadyParticipating() {
+		when(sessionRepository.takeSeat(1L)).thenReturn(1);
+		when(waitlistRepository.deleteOne(7L)).thenReturn(1);
+		when(sessionRepository.countParticipant(1L, 2L)).thenReturn(1);
+
+		assertEquals(WaitlistService.Promotion.SKIPPED, waitlistService.promote(entry));
+		verify(sessionRepository).releaseSeat(1L);
+		verify(sessionRepository, never()).addParticipant(anyLong(), anyLong());
+	}
+
+	@Test
+	@DisplayName("Should promote through the ledger in ledger mode")
+	void testPromote_LedgerMode() {
+		when(bookingLedger.isEnabled()).thenReturn(true);
+		when(bookingLedger.book(eq(1L), eq(2L), any())).thenAnswer(invocation -> {
+			BooleanSupplier claim = invocation.getArgument(2);
+			return claim.getAsBoolean() ? BookingLedger.Result.BOOKED : BookingLedger.Result.UNCLAIMED;
+		});
+		when(waitlistRepository.deleteOne(7L)).thenReturn(1);
+
+		assertEquals(WaitlistService.Promotion.PROMOTED, waitlistService.promote(entry));
+		verify(sessionRepository, never()).takeSeat(anyLong());
+		verify(sessionRepository, never()).addParticipant(anyLong(), anyLong());
+	}
+
+	@Test
+	@DisplayName("Should keep the entry when the ledger has no seat left")
+	void testPromote_LedgerModeFull() {
+		when(bookingLedger.isEnabled()).thenReturn(true);
+		when(bookingLedger.book(eq(1L), eq(2L), any())).thenReturn(BookingLedger.Result.FULL);
+
+		assertEquals(WaitlistService.Promotion.SESSION_FULL, waitlistService.promote(entry));
+		verify(waitlistRepository, never()).deleteOne(anyLong());
+	}
+}
@@ -1,3 +1,6 @@
+DROP TABLE IF EXISTS `WAITLIST`;
+DROP TABLE IF EXISTS `REVOKED_TOKENS`;
+DROP TABLE IF EXISTS `REFRESH_TOKENS`;
 DROP TABLE IF EXISTS `PARTICIPATE`;
 DROP TABLE IF EXISTS `USERS`;
 DROP TABLE IF EXISTS `SESSIONS`;
@@ -17,6 +20,10 @@ CREATE TABLE IF NOT EXISTS `SESSIONS` (
     `description` VARCHAR(2000),
     `date` TIMESTAMP,
     `teacher_id` int,
+    `capacity` INT,
+    `seats_taken` INT NOT NULL DEFAULT 0,
+    `booking_opens_at` TIMESTAMP NULL,
+    `lottery` BOOLEAN NOT NULL DEFAULT FALSE,
     `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     `updated_at` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
     );
@@ -37,6 +44,40 @@ CREATE TABLE IF NOT EXISTS `PARTICIPATE` (
                                              `session_id` INT
 );
 
+CREATE TABLE IF NOT EXISTS `REFRESH_TOKENS` (
+                                                `id` INT PRIMARY KEY AUTO_INCREMENT,
+                                                `user_id` INT NOT NULL,
+    `token_hash` CHAR(64) NOT NULL,
+    `expires_at` TIMESTAMP NOT NULL,
+    `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    );
+
+CREATE UNIQUE INDEX `idx_refresh_tokens_token_hash` ON `REFRESH_TOKENS` (`token_hash`);
+CREATE INDEX `idx_refresh_tokens_user_id` ON `REFRESH_TOKENS` (`user_id`);
+
+CREATE TABLE IF NOT EXISTS `REVOKED_TOKENS` (
+                                                `jti` VARCHAR(36) PRIMARY KEY,
+                                                `expires_at` TIMESTAMP NOT NULL
+    );
+
+CREATE INDEX `idx_revoked_tokens_expires_at` ON `REVOKED_TOKENS` (`expires_at`);
+
+CREATE TABLE IF NOT EXISTS `WAITLIST` (
+                                          `id` INT PRIMARY KEY AUTO_INCREMENT,
+                                          `session_id` INT NOT NULL,
+    `user_id` INT NOT NULL,
+    `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    );
+
+CREATE UNIQUE INDEX `idx_waitlist_session_user` ON `WAITLIST` (`session_id`, `user_id`);
+CREATE INDEX `idx_waitlist_session_id` ON `WAITLIST` (`session_id`, `id`);
+
+CREATE INDEX `idx_sessions_date_id` ON `SESSIONS` (`date`, `id`);
+CREATE UNIQUE INDEX `idx_participate_session_user` ON `PARTICIPATE` (`session_id`, `user_id`);
+
 ALTER TABLE `SESSIONS` ADD FOREIGN KEY (`teacher_id`) REFERENCES `TEACHERS` (`id`);
 ALTER TABLE `PARTICIPATE` ADD FOREIGN KEY (`user_id`) REFERENCES `USERS` (`id`);
 ALTER TABLE `PARTICIPATE` ADD FOREIGN KEY (`session_id`) REFERENCES `SESSIONS` (`id`);
+ALTER TABLE `REFRESH_TOKENS` ADD FOREIGN KEY (`user_id`) REFERENCES `USERS` (`id`) ON DELETE CASCADE;
+ALTER TABLE `WAITLIST` ADD FOREIGN KEY (`session_id`) REFERENCES `SESSIONS` (`id`) ON DELETE CASCADE;
+ALTER TABLE `WAITLIST` ADD FOREIGN KEY (`user_id`) REFERENCES `USERS` (`id`) ON DELETE CASCADE;
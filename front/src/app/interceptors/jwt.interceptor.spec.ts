@@ -0,0 +1,128 @@
+import { TestBed } from '@angular/core/testing';
+import { expect } from '@jest/globals';
+import { HTTP_INTERCEPTORS, HttpClient, HttpErrorResponse } from "@angular/common/http";
+import { HttpClientTestingModule, HttpTestingController } from "@angular/common/http/testing";
+
+import { JwtInterceptor } from './jwt.interceptor';
+import { SessionService } from '../services/session.service';
+import { SessionInformation } from "../interfaces/sessionInformation.interface";
+
+describe('JwtInterceptor', () => {
+  let httpClient: HttpClient;
+  let httpMock: HttpTestingController;
+  let sessionService: SessionService;
+
+  const mockSession: SessionInformation = {
+    token: 'old-token',
+    refreshToken: 'old-refresh',
+    type: 'Bearer',
+    id: 1,
+    username: 'JohnDoe',
+    firstName: 'John',
+    lastName: 'Doe',
+    admin: false,
+  };
+
+  const refreshedSession: SessionInformation = {
+    ...mockSession,
+    token: 'new-token',
+    refreshToken: 'new-refresh',
+  };
+
+  beforeEach(() => {
+    TestBed.configureTestingModule({
+      imports: [
+        HttpClientTestingModule
+      ],
+      providers: [
+        { provide: HTTP_INTERCEPTORS, useClass: JwtInterceptor, multi: true },
+      ]
+    });
+    httpClient = TestBed.inject(HttpClient);
+    httpMock = TestBed.inject(HttpTestingController);
+    sessionService = TestBed.inject(SessionService);
+    sessionService.logIn(mockSession);
+  });
+
+  afterEach(() => {
+    httpMock.verify();
+  });
+
+  /**
+   * Test 1: Vérifie que le token est ajouté aux requêtes d'un utilisateur connecté.
+   */
+  it('should add the token to the requests', () => {
+    httpClient.get('api/session').subscribe();
+
+    const req = httpMock.expectOne('api/session');
+    expect(req.request.headers.get('Authorization')).toBe('Bearer old-token');
+    req.flush([]);
+  });
+
+  /**
+   * Test 2: Vérifie qu'un token expiré est rafraîchi puis la requête rejouée avec le nouveau token.
+   */
+  it('should refresh the token on 401 and retry the request', done => {
+    httpClient.get('api/session').subscribe((sessions) => {
+      expect(sessions).toEqual([]);
+      expect(sessionService.sessionInformation).toEqual(refreshedSession);
+      done();
+    });
+
+    httpMock.expectOne('api/session').flush(null, { status: 401, statusText: 'Unauthorized' });
+    const refresh = httpMock.expectOne({ method: 'POST', url: 'api/auth/refresh' });
+    expect(refresh.request.body).toEqual({ refreshToken: 'old-refresh' });
+    refresh.flush(refreshedSession);
+
+    const retry = httpMock.expectOne('api/session');
+    expect(retry.request.headers.get('Authorization')).toBe('Bearer new-token');
+    retry.flush([]);
+  });
+
+  /**
+   * Test 3: Vérifie que des requêtes rejetées en même temps partagent un seul rafraîchissement.
+   */
+  it('should refresh only once for concurrent 401', () => {
+    httpClient.get('api/session').subscribe();
+    httpClient.get('api/teacher').subscribe();
+
+    httpMock.expectOne('api/session').flush(null, { status: 401, statusText: 'Unauthorized' });
+    httpMock.expectOne('api/teacher').flush(null, { status: 401, statusText: 'Unauthorized' });
+    httpMock.expectOne('api/auth/refresh').flush(refreshedSession);
+
+    httpMock.expectOne('api/session').flush([]);
+    httpMock.expectOne('api/teacher').flush([]);
+  });
+
+  /**
+   * Test 4: Vérifie qu'un échec du rafraîchissement déconnecte l'utilisateur et renvoie l'erreur d'origine.
+   */
+  it('should log out when the refresh fails', done => {
+    httpClient.get('api/session').subscribe({
+      error: (error: HttpErrorResponse) => {
+        expect(error.status).toBe(401);
+        expect(error.url).toBe('api/session');
+        expect(sessionService.isLogged).toBe(false);
+        done();
+      }
+    });
+
+    httpMock.expectOne('api/session').flush(null, { status: 401, statusText: 'Unauthorized' });
+    httpMock.expectOne('api/auth/refresh').flush(null, { status: 401, statusText: 'Unauthorized' });
+  });
+
+  /**
+   * Test 5: Vérifie que les autres erreurs ne déclenchent pas de rafraîchissement.
+   */
+  it('should not refresh on other errors', done => {
+    httpClient.get('api/session/1').subscribe({
+      error: (error: HttpErrorResponse) => {
+        expect(error.status).toBe(404);
+        done();
+      }
+    });
+
+    httpMock.expectOne('api/session/1').flush(null, { status: 404, statusText: 'Not Found' });
+    httpMock.expectNone('api/auth/refresh');
+  });
+});
@@ -1,19 +1,73 @@
-import { HttpHandler, HttpInterceptor, HttpRequest } from "@angular/common/http";
+import { HttpErrorResponse, HttpEvent, HttpHandler, HttpInterceptor, HttpRequest, HttpResponse } from "@angular/common/http";
 import { Injectable } from "@angular/core";
+import { Observable, throwError } from "rxjs";
+import { catchError, filter, finalize, map, shareReplay, switchMap, tap } from "rxjs/operators";
+import { SessionInformation } from '../interfaces/sessionInformation.interface';
 import { SessionService } from '../services/session.service';
 
 @Injectable({ providedIn: 'root' })
 export class JwtInterceptor implements HttpInterceptor {
+  private static readonly REFRESH_URL = 'api/auth/refresh';
+
+  // Refresh tokens are single-use, requests rejected together wait for the same refresh
+  private refresh$: Observable<SessionInformation> | null = null;
+
   constructor(private sessionService: SessionService) {}
 
-  public intercept(request: HttpRequest<any>, next: HttpHandler) {
-    if (this.sessionService.isLogged) {
-      request = request.clone({
-        setHeaders: {
-          Authorization: `Bearer ${this.sessionService.sessionInformation!.token}`,
-        },
-      });
+  public intercept(request: HttpRequest<any>, next: HttpHandler): Observable<HttpEvent<any>> {
+    if (!this.sessionService.isLogged) {
+      return next.handle(request);
+    }
+
+    const token = this.sessionService.sessionInformation!.token;
+    return next.handle(this.authorize(request, token)).pipe(
+      catchError((error) => {
+        if (!this.canRefresh(request, error)) {
+          return throwError(() => error);
+        }
+        // Already refreshed by another request in the meantime
+        const current = this.sessionService.sessionInformation!;
+        if (current.token !== token) {
+          return next.handle(this.authorize(request, current.token));
+        }
+        return this.refresh(next).pipe(
+          catchError(() => throwError(() => error)),
+          switchMap((session) => next.handle(this.authorize(request, session.token)))
+        );
+      })
+    );
+  }
+
+  private canRefresh(request: HttpRequest<any>, error: any): boolean {
+    return error instanceof HttpErrorResponse
+      && error.status === 401
+      && !request.url.startsWith('api/auth/')
+      && !!this.sessionService.sessionInformation?.refreshToken;
+  }
+
+  private refresh(next: HttpHandler): Observable<SessionInformation> {
+    if (!this.refresh$) {
+      const refreshToken = this.sessionService.sessionInformation!.refreshToken;
+      this.refresh$ = next.handle(new HttpRequest('POST', JwtInterceptor.REFRESH_URL, { refreshToken })).pipe(
+        filter((event): event is HttpResponse<SessionInformation> => event instanceof HttpResponse),
+        map((response) => response.body!),
+        tap({
+          next: (session) => this.sessionService.logIn(session),
+          // The refresh token is expired or was revoked: the user has to log in again
+          error: () => this.sessionService.logOut(),
+        }),
+        finalize(() => this.refresh$ = null),
+        shareReplay(1)
+      );
     }
-    return next.handle(request);
+    return this.refresh$;
+  }
+
+  private authorize(request: HttpRequest<any>, token: string): HttpRequest<any> {
+    return request.clone({
+      setHeaders: {
+        Authorization: `Bearer ${token}`,
+      },
+    });
   }
 }